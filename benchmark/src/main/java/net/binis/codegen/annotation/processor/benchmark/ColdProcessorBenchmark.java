@@ -0,0 +1,66 @@
+package net.binis.codegen.annotation.processor.benchmark;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 5, jvmArgsAppend = {"-Xmx4g"})
+public class ColdProcessorBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int prototypes;
+
+    @Param({"1", "3"})
+    public int depth;
+
+    @Param({"2"})
+    public int references;
+
+    protected Corpus corpus;
+    protected Compilation compilation;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        corpus = new Corpus(prototypes, depth, references);
+        compilation = new Compilation();
+        //No cache, manifest or registry may survive into the measured compilation
+        compilation.clean();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        compilation.close();
+    }
+
+    @Benchmark
+    public long cold(ProcessorBenchmark.Counters counters) {
+        counters.prototypes += prototypes;
+        return compilation.run(corpus.getSources());
+    }
+
+}
@@ -0,0 +1,125 @@
+package net.binis.codegen.annotation.processor.benchmark;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import net.binis.codegen.annotation.processor.CodeGenAnnotationProcessor;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class Compilation implements AutoCloseable {
+
+    protected final JavaCompiler compiler;
+    protected final InMemoryFileManager fileManager;
+    protected final List<String> options;
+    protected final Path dir;
+    protected final Path sourceRoot;
+    protected final Path targetDir;
+    protected final Map<String, String> synced = new HashMap<>();
+
+    public Compilation(String... processorOptions) {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Benchmarks must run on a JDK!");
+        }
+        try {
+            dir = Files.createTempDirectory("codegen-benchmark");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sourceRoot = dir.resolve("src");
+        targetDir = dir.resolve("target");
+        fileManager = new InMemoryFileManager(compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8));
+        //Generated sources stay in memory, the cache, output manifest and template registry live in the target dir
+        options = new ArrayList<>(List.of("-proc:only", "-classpath", System.getProperty("java.class.path"),
+                "-Acodegen.targetDir=" + targetDir, "-Acodegen.sourceRoots=" + sourceRoot));
+        for (var option : processorOptions) {
+            options.add("-A" + option);
+        }
+    }
+
+    public void clean() {
+        delete(targetDir);
+        delete(sourceRoot);
+        synced.clear();
+    }
+
+    public long run(Map<String, String> sources) {
+        sync(sources);
+        fileManager.clear();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        var task = compiler.getTask(null, fileManager, diagnostics, options, null, InMemoryFileManager.sources(sources));
+        task.setProcessors(List.of(new CodeGenAnnotationProcessor()));
+        if (!task.call()) {
+            throw new IllegalStateException("Compilation failed:\n" + diagnostics.getDiagnostics().stream()
+                    .filter(d -> d.getKind() == javax.tools.Diagnostic.Kind.ERROR)
+                    .map(Object::toString)
+                    .collect(Collectors.joining("\n")));
+        }
+        return fileManager.getOutputSize();
+    }
+
+    public int getOutputCount() {
+        return fileManager.getOutputs().size();
+    }
+
+    protected void sync(Map<String, String> sources) {
+        //Mirror the corpus in the source root, only what changed since the last run is written
+        sources.forEach((name, content) -> {
+            if (!content.equals(synced.get(name))) {
+                var file = sourceRoot.resolve(name.replace('.', '/') + ".java");
+                try {
+                    Files.createDirectories(file.getParent());
+                    Files.writeString(file, content);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                synced.put(name, content);
+            }
+        });
+    }
+
+    protected static void delete(Path path) {
+        if (Files.exists(path)) {
+            try (var files = Files.walk(path)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        fileManager.close();
+        delete(dir);
+    }
+
+}
@@ -0,0 +1,121 @@
+package net.binis.codegen.annotation.processor.benchmark;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.*;
+
+public class Corpus {
+
+    public static final String TEMPLATE_PACKAGE = "bench.templates";
+    public static final String MODEL_PACKAGE = "bench.model";
+    protected static final int PACKAGE_SIZE = 100;
+
+    protected final int prototypes;
+    protected final int depth;
+    protected final int references;
+    protected final Map<String, String> sources = new LinkedHashMap<>();
+    protected int changes;
+
+    public Corpus(int prototypes, int depth, int references) {
+        this.prototypes = prototypes;
+        this.depth = Math.max(0, depth);
+        this.references = Math.max(0, references);
+        generate();
+    }
+
+    public Map<String, String> getSources() {
+        return sources;
+    }
+
+    public int getPrototypes() {
+        return prototypes;
+    }
+
+    public String change() {
+        var index = changes++ % prototypes;
+        var name = prototypeName(index);
+        sources.put(name, prototype(index, changes));
+        return name;
+    }
+
+    protected void generate() {
+        for (var i = 1; i <= depth; i++) {
+            sources.put(TEMPLATE_PACKAGE + ".Template" + i, template(i));
+        }
+        for (var i = 0; i < prototypes; i++) {
+            sources.put(prototypeName(i), prototype(i, 0));
+        }
+    }
+
+    protected String template(int level) {
+        var parent = level == 1 ? "net.binis.codegen.annotation.CodePrototype" : TEMPLATE_PACKAGE + ".Template" + (level - 1);
+        return "package " + TEMPLATE_PACKAGE + ";\n\n" +
+                "import net.binis.codegen.annotation.CodePrototypeTemplate;\n" +
+                "import java.lang.annotation.ElementType;\n" +
+                "import java.lang.annotation.Target;\n\n" +
+                "@CodePrototypeTemplate\n" +
+                "@" + parent + "\n" +
+                "@Target(ElementType.TYPE)\n" +
+                "public @interface Template" + level + " {\n" +
+                "    String name() default \"\";\n" +
+                "    boolean generateConstructor() default true;\n" +
+                "    boolean generateInterface() default true;\n" +
+                "    boolean generateImplementation() default true;\n" +
+                "}\n";
+    }
+
+    protected String prototype(int index, int revision) {
+        var annotation = depth == 0 ? "net.binis.codegen.annotation.CodePrototype" : TEMPLATE_PACKAGE + ".Template" + depth;
+        var result = new StringBuilder()
+                .append("package ").append(packageName(index)).append(";\n\n")
+                .append('@').append(annotation).append('\n')
+                .append("public interface ").append(simpleName(index)).append(" {\n")
+                .append("    String name();\n")
+                .append("    int count();\n")
+                .append("    java.util.List<String> tags();\n");
+        //Fixed seed per prototype so every run gets the same reference graph
+        var random = new Random(index * 31L + prototypes);
+        for (var i = 0; i < references && prototypes > 1; i++) {
+            var target = random.nextInt(prototypes - 1);
+            if (target >= index) {
+                target++;
+            }
+            result.append("    ").append(prototypeName(target)).append(" ref").append(i).append("();\n");
+        }
+        if (revision > 0) {
+            result.append("    long revision").append(revision).append("();\n");
+        }
+        return result.append("}\n").toString();
+    }
+
+    protected String prototypeName(int index) {
+        return packageName(index) + '.' + simpleName(index);
+    }
+
+    protected String packageName(int index) {
+        return MODEL_PACKAGE + ".p" + (index / PACKAGE_SIZE);
+    }
+
+    protected String simpleName(int index) {
+        return "Entity" + index + "Prototype";
+    }
+
+}
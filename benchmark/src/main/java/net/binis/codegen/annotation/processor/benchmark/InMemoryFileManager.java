@@ -0,0 +1,118 @@
+package net.binis.codegen.annotation.processor.benchmark;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    protected final Map<String, MemoryFile> outputs = new ConcurrentHashMap<>();
+
+    public InMemoryFileManager(StandardJavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    public static List<JavaFileObject> sources(Map<String, String> sources) {
+        var result = new ArrayList<JavaFileObject>(sources.size());
+        sources.forEach((name, content) -> result.add(new SourceFile(name, content)));
+        return result;
+    }
+
+    public Map<String, MemoryFile> getOutputs() {
+        return outputs;
+    }
+
+    public long getOutputSize() {
+        return outputs.values().stream().mapToLong(MemoryFile::size).sum();
+    }
+
+    public void clear() {
+        outputs.clear();
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+        return outputs.computeIfAbsent(location.getName() + ':' + className + kind.extension, k ->
+                new MemoryFile(URI.create("mem:///" + location.getName() + '/' + className.replace('.', '/') + kind.extension), kind));
+    }
+
+    @Override
+    public FileObject getFileForOutput(Location location, String packageName, String relativeName, FileObject sibling) {
+        var path = packageName.isEmpty() ? relativeName : packageName.replace('.', '/') + '/' + relativeName;
+        return outputs.computeIfAbsent(location.getName() + ':' + path, k ->
+                new MemoryFile(URI.create("mem:///" + location.getName() + '/' + path), JavaFileObject.Kind.OTHER));
+    }
+
+    @Override
+    public boolean isSameFile(FileObject a, FileObject b) {
+        return a.toUri().equals(b.toUri());
+    }
+
+    public static class SourceFile extends SimpleJavaFileObject {
+
+        protected final String content;
+
+        public SourceFile(String className, String content) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+
+    }
+
+    public static class MemoryFile extends SimpleJavaFileObject {
+
+        protected final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        public MemoryFile(URI uri, Kind kind) {
+            super(uri, kind);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            content.reset();
+            return content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content.toString(StandardCharsets.UTF_8);
+        }
+
+        public long size() {
+            return content.size();
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package net.binis.codegen.annotation.processor.benchmark;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ProcessorBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int prototypes;
+
+    @Param({"1", "3"})
+    public int depth;
+
+    @Param({"2"})
+    public int references;
+
+    protected Corpus corpus;
+    protected Compilation compilation;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+
+        public long prototypes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            prototypes = 0;
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        corpus = new Corpus(prototypes, depth, references);
+        compilation = new Compilation();
+        //Prime the processor session so every measured run is a warm one
+        compilation.run(corpus.getSources());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        compilation.close();
+    }
+
+    @Benchmark
+    public long warm(Counters counters) {
+        counters.prototypes += prototypes;
+        return compilation.run(corpus.getSources());
+    }
+
+    @Benchmark
+    public void oneChanged(Counters counters, Blackhole blackhole) {
+        blackhole.consume(corpus.change());
+        counters.prototypes += prototypes;
+        blackhole.consume(compilation.run(corpus.getSources()));
+    }
+
+}
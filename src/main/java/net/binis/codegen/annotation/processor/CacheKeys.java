@@ -0,0 +1,177 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.Elements;
+import java.util.*;
+import java.util.function.Function;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static net.binis.codegen.tools.Tools.in;
+import static net.binis.codegen.tools.Tools.with;
+
+public class CacheKeys {
+
+    protected final Elements elementUtils;
+    protected final Function<String, String> sources;
+    protected final GeneratedNames names;
+    protected final Map<String, Optional<String>> sourceHashes = new HashMap<>();
+    protected final Map<String, Set<TypeElement>> generated = new HashMap<>();
+
+    public CacheKeys(Elements elementUtils, Function<String, String> sources, GeneratedNames names) {
+        this.elementUtils = elementUtils;
+        this.sources = sources;
+        this.names = names;
+    }
+
+    public void register(TypeElement prototype) {
+        register(prototype, prototype);
+    }
+
+    protected void register(TypeElement type, TypeElement prototype) {
+        var name = type.getSimpleName().toString();
+        var pkg = elementUtils.getPackageOf(type).getQualifiedName().toString();
+        var prefix = pkg.isEmpty() ? "" : pkg + '.';
+        var qualified = type.getQualifiedName().toString();
+        var registered = new ArrayList<>(List.of(qualified, name));
+        var known = names.getNames(qualified);
+        if (nonNull(known)) {
+            //Names generated for this prototype by a previous build
+            known.forEach(n -> registered.addAll(List.of(n, n.substring(n.lastIndexOf('.') + 1))));
+        } else if (name.endsWith("Prototype") && name.length() > 9) {
+            //Never generated yet, guess from the naming convention
+            var base = name.substring(0, name.length() - 9);
+            registered.addAll(List.of(base, base + "Impl", prefix + base, prefix + base + "Impl"));
+        }
+        registered.forEach(n -> generated.computeIfAbsent(n, k -> new LinkedHashSet<>()).add(prototype));
+        type.getEnclosedElements().stream()
+                .filter(TypeElement.class::isInstance)
+                .forEach(e -> register((TypeElement) e, prototype));
+    }
+
+    public Set<TypeElement> findPrototypes(String dependency) {
+        var result = generated.get(dependency);
+        if (isNull(result) && isNull(elementUtils.getTypeElement(dependency))) {
+            //Unresolved type, most likely generated from another prototype
+            result = generated.get(dependency.substring(dependency.lastIndexOf('.') + 1));
+        }
+        return result;
+    }
+
+    public String calcKey(String inputs, String source, List<TypeElement> types) {
+        return GenerationCache.hash(inputs, source, calcDependencyHash(types));
+    }
+
+    public String calcDependencyHash(List<TypeElement> types) {
+        var hashes = new TreeMap<String, String>();
+        types.forEach(type -> collectSourceHashes(type, hashes));
+        return GenerationCache.hash(hashes.entrySet().stream().map(e -> e.getKey() + '=' + e.getValue()).toArray(String[]::new));
+    }
+
+    protected void collectSourceHashes(TypeElement type, Map<String, String> hashes) {
+        var name = type.getQualifiedName().toString();
+        if (!hashes.containsKey(name)) {
+            var hash = sourceHashes.computeIfAbsent(name, n -> Optional.ofNullable(sources.apply(n)).map(GenerationCache::hash)).orElse(null);
+            hashes.put(name, hash);
+            if (nonNull(hash)) {
+                getDependencies(type).forEach(dep -> resolve(dep).forEach(t -> collectSourceHashes(t, hashes)));
+            }
+        }
+    }
+
+    protected Set<TypeElement> resolve(String dependency) {
+        var result = new LinkedHashSet<TypeElement>();
+        var type = elementUtils.getTypeElement(dependency);
+        with(type, result::add);
+        with(findPrototypes(dependency), result::addAll);
+        if (isNull(type) && result.isEmpty()) {
+            //Generated from a prototype outside of this round
+            var prototype = names.getPrototype(dependency);
+            with(elementUtils.getTypeElement(nonNull(prototype) ? prototype : dependency + "Prototype"), result::add);
+        }
+        return result;
+    }
+
+    public static Set<String> getDependencies(Element element) {
+        var result = new TreeSet<String>();
+        collectDependencies(element, result);
+        return result;
+    }
+
+    protected static void collectDependencies(Element element, Set<String> result) {
+        element.getAnnotationMirrors().forEach(a -> collectDependencies(a, result));
+        if (element instanceof TypeElement type) {
+            collectDependencies(type.getSuperclass(), result);
+            type.getInterfaces().forEach(i -> collectDependencies(i, result));
+            type.getEnclosedElements().forEach(e -> collectDependencies(e, result));
+        } else if (element instanceof ExecutableElement method) {
+            collectDependencies(method.getReturnType(), result);
+            method.getParameters().forEach(p -> collectDependencies(p, result));
+            method.getThrownTypes().forEach(t -> collectDependencies(t, result));
+        } else if (element instanceof VariableElement variable) {
+            collectDependencies(variable.asType(), result);
+        }
+    }
+
+    protected static void collectDependencies(AnnotationMirror annotation, Set<String> result) {
+        collectDependencies(annotation.getAnnotationType(), result);
+        annotation.getElementValues().values().forEach(v -> collectDependencies(v.getValue(), result));
+    }
+
+    protected static void collectDependencies(Object value, Set<String> result) {
+        if (value instanceof TypeMirror type) {
+            collectDependencies(type, result);
+        } else if (value instanceof AnnotationMirror annotation) {
+            collectDependencies(annotation, result);
+        } else if (value instanceof List<?> list) {
+            list.forEach(v -> collectDependencies(v instanceof AnnotationValue a ? a.getValue() : v, result));
+        }
+    }
+
+    protected static void collectDependencies(TypeMirror type, Set<String> result) {
+        if (in(type.getKind(), TypeKind.DECLARED, TypeKind.ERROR)) {
+            var declared = (DeclaredType) type;
+            with(getTopLevelType(declared.asElement()), t -> result.add(t.getQualifiedName().toString()));
+            declared.getTypeArguments().forEach(t -> collectDependencies(t, result));
+        } else if (type.getKind() == TypeKind.ARRAY) {
+            collectDependencies(((ArrayType) type).getComponentType(), result);
+        } else if (type.getKind() == TypeKind.WILDCARD) {
+            var wildcard = (WildcardType) type;
+            with(wildcard.getExtendsBound(), t -> collectDependencies(t, result));
+            with(wildcard.getSuperBound(), t -> collectDependencies(t, result));
+        }
+    }
+
+    public static TypeElement getTopLevelType(Element element) {
+        TypeElement result = null;
+        while (nonNull(element)) {
+            if (element instanceof TypeElement type) {
+                result = type;
+            }
+            element = element.getEnclosingElement();
+        }
+        return result;
+    }
+
+}
@@ -20,9 +20,10 @@ package net.binis.codegen.annotation.processor;
  * #L%
  */
 
+import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.AnnotationDeclaration;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.*;
+import com.github.javaparser.ast.stmt.BlockStmt;
 import lombok.extern.slf4j.Slf4j;
 import net.binis.codegen.CodeGen;
 import net.binis.codegen.annotation.CodeConfiguration;
@@ -40,23 +41,22 @@ import net.binis.codegen.generation.core.interfaces.PrototypeDescription;
 import net.binis.codegen.javaparser.CodeGenPrettyPrinter;
 import net.binis.codegen.objects.Pair;
 import net.binis.codegen.tools.Holder;
-import net.binis.codegen.tools.Reflection;
 import net.binis.codegen.utils.CodeGenAnnotationProcessorUtils;
 
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
-import javax.lang.model.element.Element;
-import javax.lang.model.element.ElementKind;
-import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.*;
 import java.io.*;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Proxy;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
@@ -71,6 +71,21 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 @Slf4j
 public class CodeGenAnnotationProcessor extends AbstractProcessor {
 
+    public static final String CACHE_OPTION = "codegen.cache";
+    public static final String THREADS_OPTION = "codegen.threads";
+    public static final String COMPONENTS_OPTION = "codegen.components";
+    public static final String STREAMING_OPTION = "codegen.streaming";
+    public static final String REPORT_OPTION = "codegen.report";
+    public static final String SOURCE_ROOTS_OPTION = "codegen.sourceRoots";
+    public static final String TARGET_DIR_OPTION = "codegen.targetDir";
+    public static final String LAZY_OPTION = "codegen.lazy";
+    public static final String BUDGET_TIME_OPTION = "codegen.budget.time";
+    public static final String BUDGET_MEMORY_OPTION = "codegen.budget.memory";
+    public static final String REPORT_SLOWEST_OPTION = "codegen.report.slowest";
+    protected static final String UNRESOLVED_COMPONENT = "<unresolved>";
+    protected static final String GRADLE_AGGREGATING = "org.gradle.annotation.processing.aggregating";
+    protected static final String VERSION = getVersion(CodeGenAnnotationProcessor.class) + '/' + getVersion(CodeGen.class);
+
     protected Types typeUtils;
     protected Elements elementUtils;
     protected Filer filer;
@@ -80,6 +95,37 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
     protected JavaFileManager fileManager;
     protected File targetDir;
     protected Set<String> sourceRoots;
+    protected Set<String> locatedRoots;
+    protected Map<String, Optional<String>> rootsByDirectory = new HashMap<>();
+    protected Set<String> written;
+    protected Set<PrototypeDescription<ClassOrInterfaceDeclaration>> saved;
+    protected GenerationCache cache;
+    protected OutputManifest manifest;
+    protected TemplateRegistry templateRegistry;
+    protected GeneratedNames generatedNames;
+    protected PrototypeIndex index;
+    protected PrototypeIndex upstream;
+    protected Set<String> indexed;
+    protected Map<String, String> typeOwners = new HashMap<>();
+    protected Map<String, List<Element>> ownerElements = new HashMap<>();
+    protected Map<String, String> ownerKeys = new HashMap<>();
+    protected CacheKeys cacheKeys;
+    protected String aggregateKey;
+    protected boolean partialGeneration;
+    protected String aggregateOwner;
+    protected int round;
+    protected boolean streaming;
+    protected boolean lazy;
+    protected List<ElementSource> deferred;
+    protected Set<String> completed;
+    protected Set<String> failed;
+    protected ProcessingBudget budget;
+    protected boolean degraded;
+    protected boolean overMemory;
+    protected SourceIndex sourceIndex;
+    protected ElementCollector collector;
+    protected OutputPipeline<PrintedSource> outputs;
+    protected ProcessorMetrics metrics = new ProcessorMetrics(false, 0);
 
     static {
         addOpensForCodeGen(true);
@@ -99,18 +145,38 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
         filer = processingEnv.getFiler();
         messager = processingEnv.getMessager();
         options = processingEnv.getOptions();
+        CodeGenSession.get().begin();
         lookup.setProcessingEnvironment(processingEnv);
         fileManager = getFileManager(processingEnv);
+        written = new HashSet<>();
+        saved = Collections.newSetFromMap(new IdentityHashMap<>());
+        deferred = new ArrayList<>();
+        completed = new HashSet<>();
+        failed = new HashSet<>();
+        budget = new ProcessingBudget(getIntOption(BUDGET_TIME_OPTION, 0), getIntOption(BUDGET_MEMORY_OPTION, 0));
+        degraded = false;
+        overMemory = false;
+        index = new PrototypeIndex();
+        upstream = null;
+        indexed = new HashSet<>();
+        sourceIndex = new SourceIndex();
+        collector = new ElementCollector(elementUtils);
+        outputs = new OutputPipeline<>(getIntOption(THREADS_OPTION, Runtime.getRuntime().availableProcessors()));
+        streaming = getBooleanOption(STREAMING_OPTION, false);
+        lazy = getBooleanOption(LAZY_OPTION, false);
+        metrics = new ProcessorMetrics(getBooleanOption(REPORT_OPTION, false), getIntOption(REPORT_SLOWEST_OPTION, 10));
+        round = 0;
     }
 
     protected JavaFileManager getFileManager(ProcessingEnvironment processingEnv) {
         try {
-            JavaFileManager result = Reflection.getFieldValue(processingEnv, "fileManager");
+            processingEnv = unwrapProcessingEnvironment(processingEnv);
+            JavaFileManager result = JavacAccess.getField(processingEnv, "fileManager");
             if (nonNull(result)) {
                 return result;
             }
             //Try to get IDEA file manager
-            result = Reflection.getFieldValue(Proxy.getInvocationHandler(Reflection.getFieldValue((Object) Reflection.getFieldValue(Proxy.getInvocationHandler(processingEnv), "val$delegateTo"), "fileManager")), "val$wrapper");
+            result = JavacAccess.getField(Proxy.getInvocationHandler(JavacAccess.getField(JavacAccess.getField(Proxy.getInvocationHandler(processingEnv), "val$delegateTo"), "fileManager")), "val$wrapper");
             if (nonNull(result)) {
                 return result;
             }
@@ -120,44 +186,124 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
         return null;
     }
 
+    protected ProcessingEnvironment unwrapProcessingEnvironment(ProcessingEnvironment processingEnv) {
+        //Gradle wraps the environment of incremental processors, the javac one is held in 'delegate'
+        while (nonNull(JavacAccess.findField(processingEnv.getClass(), "delegate"))) {
+            if (JavacAccess.getField(processingEnv, "delegate") instanceof ProcessingEnvironment delegate && delegate != processingEnv) {
+                processingEnv = delegate;
+            } else {
+                break;
+            }
+        }
+        return processingEnv;
+    }
+
+    protected File getClassOutput() {
+        try {
+            //Output locations are resolved without opening the file, so this works through any Filer wrapper
+            var probe = filer.getResource(StandardLocation.CLASS_OUTPUT, "", "binis/outputs.manifest");
+            if ("file".equals(probe.toUri().getScheme())) {
+                return new File(probe.toUri()).getParentFile().getParentFile().getAbsoluteFile();
+            }
+        } catch (Exception e) {
+            log.debug("Unable to locate class output ({})", e.getMessage());
+        }
+        return null;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
         try {
-            if (!processed()) {
+            if (!isPrototypeTest() && !roundEnv.processingOver()) {
                 var elements = new ArrayList<Element>();
                 CodeFactory.registerType(CodeFactory.class, () -> elements);
                 lookup.setRoundEnvironment(roundEnv);
-                externalLookup(roundEnv);
-
-                var files = Parsables.create();
+                try (var timer = metrics.time("collect")) {
+                    externalLookup(roundEnv);
+                    collector.collect(roundEnv);
+                }
+                initCache();
+                aggregateOwner = GenerationCache.AGGREGATE + round++;
 
-                processConfigs(roundEnv);
-                processTemplates(roundEnv, files);
+                var sources = new ArrayList<ElementSource>(deferred);
+                deferred.clear();
+                sources.forEach(s -> elements.add(s.element()));
 
-                defaultProperties.keySet().stream()
-                        .map(Reflection::loadClass)
-                        .filter(Objects::nonNull)
-                        .forEach(cls ->
-                                processAnnotation(roundEnv, files, (Class) cls, elements));
+                try (var timer = metrics.time("configs")) {
+                    processConfigs(roundEnv);
+                }
+                try (var timer = metrics.time("templates")) {
+                    processTemplates(roundEnv, sources);
+                }
 
-                if (!files.isEmpty()) {
+                try (var timer = metrics.time("annotations")) {
+                    defaultProperties.keySet().stream()
+                            .filter(collector::contains)
+                            .map(ElementCollector::loadClass)
+                            .filter(Objects::nonNull)
+                            .forEach(cls ->
+                                    processAnnotation(roundEnv, sources, (Class) cls, elements));
+                }
 
-                    CodeGen.processSources(files);
+                sources.removeIf(s -> completed.contains(s.fileName()));
+                registerOwners(sources);
+                metrics.count("elements", sources.size());
+                List<List<ElementSource>> components;
+                try (var timer = metrics.time("cache")) {
+                    components = new ArrayList<>(splitComponents(reuseCached(roundEnv, sources)));
+                }
+                if (!components.isEmpty()) {
+                    metrics.count("components", components.size());
+                    for (var i = 0; i < components.size(); i++) {
+                        if (budget.isTimeExceeded()) {
+                            abandon(components.subList(i, components.size()));
+                            break;
+                        }
+                        var component = components.set(i, null);
+                        var start = System.nanoTime();
+                        try {
+                            generate(component);
+                        } catch (OutOfMemoryError | StackOverflowError e) {
+                            fail(component, e);
+                            continue;
+                        }
+                        var elapsed = System.nanoTime() - start;
+                        if (metrics.isEnabled()) {
+                            metrics.prototype(getUnitName(component), elapsed);
+                        }
+                        checkBudget(component, elapsed);
+                        if (streaming && !isElementTest()) {
+                            release(component, sources);
+                        }
+                    }
 
                     if (!isElementTest()) {
-                        lookup.parsed().stream()
-                                .filter(PrototypeDescription::isProcessed)
-                                .filter(p -> !p.isNested() || isNull(p.getParentClassName()))
-                                .forEach(this::saveParsed);
-                        lookup.custom().forEach(this::saveParsed);
+                        try (var timer = metrics.time("write")) {
+                            lookup.custom().stream()
+                                    .filter(saved::add)
+                                    .forEach(this::saveParsed);
+                            flushOutputs(true);
+                            storeCached();
+                        }
                     }
                 }
+
+                deferIncomplete(sources);
             } else {
                 if (isNull(sourceRoots)) {
                     externalLookup(roundEnv);
                 }
-                log.debug("Prototypes already processed!");
+                if (roundEnv.processingOver()) {
+                    reportDeferred();
+                    if (!isElementTest()) {
+                        index.write(filer, this::prototypeExists);
+                        metrics.write(filer);
+                    }
+                    saveManifest();
+                    sourceIndex.clear();
+                    outputs.close();
+                }
             }
         } catch (Exception e) {
             log.error("CodeGenAnnotationProcessor exception!", e);
@@ -166,28 +312,250 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
         return false;
     }
 
+    protected void generate(List<ElementSource> sources) {
+        var files = Parsables.create();
+        sources.forEach(s ->
+                files.file(s.source()).add(s.element(), s.annotation(), s.fileName()));
+
+        if (!files.isEmpty()) {
+            try (var timer = metrics.time("generate")) {
+                var event = new CodeGenEvents.GenerationEvent();
+                event.begin();
+                CodeGen.processSources(files);
+                if (event.shouldCommit()) {
+                    event.prototype = getComponentName(sources);
+                    event.annotation = getComponentAnnotation(sources);
+                    event.elements = sources.size();
+                    event.commit();
+                }
+            }
+
+            if (!isElementTest()) {
+                try (var timer = metrics.time("save")) {
+                    lookup.parsed().stream()
+                            .filter(PrototypeDescription::isProcessed)
+                            .filter(p -> !p.isNested() || isNull(p.getParentClassName()))
+                            .filter(saved::add)
+                            .forEach(this::saveParsed);
+                }
+                try (var timer = metrics.time("write")) {
+                    flushOutputs(false);
+                }
+            }
+        }
+    }
+
+    protected void checkBudget(List<ElementSource> component, long elapsed) {
+        if (budget.isEnabled()) {
+            budget.spent(elapsed);
+            var exceeded = budget.isMemoryExceeded();
+            if (exceeded) {
+                if (!overMemory) {
+                    reportComponent(component, Diagnostic.Kind.WARNING, "Prototype %s pushed heap usage to %d MB, over the budget of %d MB!",
+                            budget.getUsedMemory() >> 20, budget.getMemoryLimit() >> 20);
+                }
+                degrade("memory budget exceeded");
+            } else if (budget.isMemoryNearLimit()) {
+                degrade("memory budget almost exhausted");
+            }
+            overMemory = exceeded;
+            if (budget.isTimeExceeded()) {
+                reportComponent(component, Diagnostic.Kind.WARNING, "Prototype %s took %d ms and exhausted the time budget of %d s, remaining prototypes will not be generated!",
+                        elapsed / 1_000_000, budget.getTimeLimit() / 1_000_000_000);
+            }
+        }
+    }
+
+    protected void fail(List<ElementSource> component, Throwable error) {
+        var owners = component.stream().map(ElementSource::fileName).collect(Collectors.toSet());
+        failed.addAll(owners);
+        lookup.parsed().stream()
+                .filter(p -> owners.contains(getOwner(p)))
+                .forEach(p -> {
+                    //Never save what the failed generation left behind
+                    saved.add(p);
+                    releaseUnits(p);
+                });
+        sourceIndex.release(owners);
+        degrade(error.getClass().getSimpleName());
+        reportComponent(component, Diagnostic.Kind.ERROR, "Prototype %s was not generated, generation failed with %s!", error.getClass().getSimpleName());
+    }
+
+    protected void abandon(List<List<ElementSource>> components) {
+        components.stream()
+                .filter(Objects::nonNull)
+                .forEach(component -> {
+                    component.forEach(s -> failed.add(s.fileName()));
+                    reportComponent(component, Diagnostic.Kind.ERROR, "Prototype %s was not generated, the generation time budget of %d s (" + BUDGET_TIME_OPTION + ") is exhausted!",
+                            budget.getTimeLimit() / 1_000_000_000);
+                });
+    }
+
+    protected void degrade(String reason) {
+        if (!degraded) {
+            degraded = true;
+            log.warn("Switching to low memory processing ({})", reason);
+            streaming = true;
+            flushOutputs(true);
+            outputs.close();
+            outputs = new OutputPipeline<>(1);
+            sourceIndex.clearContents();
+            rootsByDirectory.clear();
+            upstream = null;
+        }
+    }
+
+    protected void reportComponent(List<ElementSource> component, Diagnostic.Kind kind, String message, Object... args) {
+        component.stream()
+                .map(ElementSource::element)
+                .map(CodeGenAnnotationProcessor::getTopLevelType)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(e -> {
+                    var params = new Object[args.length + 1];
+                    params[0] = e.getQualifiedName();
+                    System.arraycopy(args, 0, params, 1, args.length);
+                    messager.printMessage(kind, String.format(message, params), e);
+                });
+    }
+
+    protected String getComponentName(List<ElementSource> component) {
+        return component.stream()
+                .map(s -> s.element().toString())
+                .distinct()
+                .collect(Collectors.joining(", "));
+    }
+
+    protected String getUnitName(List<ElementSource> component) {
+        //Without components the whole round is generated, and timed, as one unit
+        var names = component.stream()
+                .map(s -> s.element().toString())
+                .distinct()
+                .toList();
+        if (names.size() == 1) {
+            return names.get(0);
+        }
+        return names.size() + " prototypes: " + String.join(", ", names.subList(0, Math.min(names.size(), 3))) + (names.size() > 3 ? ", ..." : "");
+    }
+
+    protected String getComponentAnnotation(List<ElementSource> component) {
+        return component.stream()
+                .map(ElementSource::annotation)
+                .filter(Objects::nonNull)
+                .map(Object::toString)
+                .distinct()
+                .collect(Collectors.joining(", "));
+    }
+
+    protected List<List<ElementSource>> splitComponents(List<ElementSource> sources) {
+        if (sources.isEmpty()) {
+            return List.of();
+        }
+        //Budgets act per component, so they need independent groups to work with
+        if (sources.size() < 2 || !(streaming || budget.isEnabled() || getBooleanOption(COMPONENTS_OPTION, false))) {
+            return List.of(sources);
+        }
+
+        var owners = new LinkedHashMap<String, List<ElementSource>>();
+        sources.forEach(s -> owners.computeIfAbsent(s.fileName(), k -> new ArrayList<>()).add(s));
+
+        var graph = new PrototypeGraph();
+        owners.keySet().forEach(graph::add);
+
+        owners.forEach((owner, list) -> list.stream()
+                .map(s -> getTopLevelType(s.element()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(type -> CacheKeys.getDependencies(type).forEach(dependency -> {
+                    var linked = cacheKeys.findPrototypes(dependency);
+                    if (nonNull(linked)) {
+                        linked.forEach(t -> with(typeOwners.get(t.getQualifiedName().toString()), o -> graph.link(owner, o)));
+                    } else if (isNull(elementUtils.getTypeElement(dependency))) {
+                        graph.link(owner, UNRESOLVED_COMPONENT);
+                    }
+                })));
+
+        //Keep the order of a serial run, prototypes depending on unresolved types go last
+        var result = graph.getComponents().stream()
+                .sorted(Comparator.comparing(component -> component.contains(UNRESOLVED_COMPONENT)))
+                .map(component -> component.stream()
+                        .map(owners::get)
+                        .filter(Objects::nonNull)
+                        .flatMap(List::stream)
+                        .toList())
+                .filter(component -> !component.isEmpty())
+                .toList();
+        log.info("Generating {} prototype files in {} independent groups", owners.size(), result.size());
+        return result;
+    }
+
+    protected void release(List<ElementSource> component, List<ElementSource> sources) {
+        flushOutputs(true);
+        var owners = component.stream().map(ElementSource::fileName).collect(Collectors.toSet());
+        storeCached(owners);
+        //Deferred members are generated again in the next round and need the full component
+        if (lookup.parsed().stream().anyMatch(p -> !p.isProcessed() && owners.contains(getOwner(p)))) {
+            return;
+        }
+        lookup.parsed().stream()
+                .filter(saved::contains)
+                .filter(p -> owners.contains(getOwner(p)))
+                .forEach(this::releaseUnits);
+        sources.replaceAll(s -> owners.contains(s.fileName()) ? s.withoutSource() : s);
+        sourceIndex.release(owners);
+    }
+
+    protected void releaseUnits(PrototypeDescription<ClassOrInterfaceDeclaration> p) {
+        //Keep declarations and signatures as a stub for later cross-references, drop only the bodies
+        p.getFiles().stream()
+                .filter(Objects::nonNull)
+                .forEach(unit -> unit.getTypes().forEach(CodeGenAnnotationProcessor::stripBodies));
+        with(p.getCustomFiles(), custom -> custom.values().stream()
+                .filter(file -> nonNull(file.getJavaClass()))
+                .forEach(file -> stripBodies(file.getJavaClass())));
+    }
+
+    protected static void stripBodies(TypeDeclaration<?> type) {
+        type.getMembers().removeIf(InitializerDeclaration.class::isInstance);
+        type.getMembers().forEach(member -> {
+            if (member instanceof MethodDeclaration method) {
+                method.removeBody();
+            } else if (member instanceof ConstructorDeclaration constructor) {
+                constructor.setBody(new BlockStmt());
+            } else if (member instanceof FieldDeclaration field) {
+                field.getVariables().forEach(VariableDeclarator::removeInitializer);
+            } else if (member instanceof TypeDeclaration<?> nested) {
+                stripBodies(nested);
+            }
+        });
+    }
+
     protected void saveParsed(PrototypeDescription<ClassOrInterfaceDeclaration> p) {
-        if (isNull(p.getCompiled())) {
+        //Prototypes served from an upstream index are already compiled in their own module
+        if (isNull(p.getCompiled()) && !isIndexed(p)) {
+            if (!(p instanceof CustomDescription)) {
+                indexParsed(p);
+            }
             if (p.getProperties().isGenerateImplementation() && isNull(p.getProperties().getMixInClass())) {
                 if (p instanceof CustomDescription desc && nonNull(desc.getPath())) {
-                    saveFile(p.getFiles().get(0), desc.getPath());
+                    saveFile(p, p.getFiles().get(0), desc.getPath());
                 } else {
-                    saveFile(p.getFiles().get(0), getBasePath(p.getProperties(), true));
+                    saveFile(p, p.getFiles().get(0), getBasePath(p.getProperties(), true));
                 }
             }
             if (p.getProperties().isGenerateInterface()) {
                 if (p instanceof CustomDescription desc && nonNull(desc.getPath())) {
-                    saveFile(p.getFiles().get(1), desc.getPath());
+                    saveFile(p, p.getFiles().get(1), desc.getPath());
                 } else {
-                    saveFile(p.getFiles().get(1), getBasePath(p.getProperties(), false));
+                    saveFile(p, p.getFiles().get(1), getBasePath(p.getProperties(), false));
                 }
             }
             with(p.getCustomFiles(), custom -> custom.forEach((name, file) -> {
                 if (nonNull(file.getJavaClass())) {
                     if (p instanceof CustomDescription desc && nonNull(desc.getPath())) {
-                        saveFile(file.getJavaClass().findCompilationUnit().get(), desc.getPath());
+                        saveFile(p, file.getJavaClass().findCompilationUnit().get(), desc.getPath());
                     } else {
-                        saveFile(file.getJavaClass().findCompilationUnit().get(), getBasePath(p.getProperties(), true));
+                        saveFile(p, file.getJavaClass().findCompilationUnit().get(), getBasePath(p.getProperties(), true));
                     }
                 }
                 //TODO: Save non java custom files.
@@ -195,42 +563,69 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
         }
     }
 
-    protected void processTemplates(RoundEnvironment roundEnv, Parsables files) {
+    protected void processTemplates(RoundEnvironment roundEnv, List<ElementSource> sources) {
         if (nonNull(targetDir) && nonNull(sourceRoots)) {
             var file = new File(targetDir.getAbsolutePath() + "/binis/annotations");
             if (file.exists()) {
+                var found = new ArrayList<Pair<String, String>>();
+                var stale = new HashMap<String, Pair<File, String>>();
                 AnnotationDiscoverer.findAnnotations(file).stream()
                         .filter(Discoverer.DiscoveredService::isTemplate)
                         .filter(a -> !Structures.defaultProperties.containsKey(a.getName()))
-                        .forEach(template ->
-                                sourceRoots.forEach(root -> with(classNameToFile(root, template.getName()), f -> {
-                                    if (f.exists()) {
-                                        try {
-                                            var source = Files.readString(f.toPath(), Charset.defaultCharset());
-                                            var result = lookup.getParser().parse(source);
-                                            if (result.isSuccessful()) {
-                                                var unit = result.getResult().get();
-                                                if (unit.getType(0) instanceof AnnotationDeclaration ann) {
-                                                    log.info("Processing template: {}", ann.getNameAsString());
-                                                    Structures.registerTemplate(ann);
-                                                }
-                                            } else {
-                                                log.error("Failed template processing ({}) with:", template.getName());
-                                            }
-                                        } catch (Exception e) {
-                                            log.error("Unable to read {}", f);
+                        .forEach(template -> {
+                            var name = template.getName();
+                            var entry = isNull(templateRegistry) ? null : templateRegistry.get(name);
+                            if (nonNull(entry) && templateRegistry.isCurrent(entry)) {
+                                found.add(Pair.of(name, entry.compact()));
+                                return;
+                            }
+                            for (var root : sourceRoots) {
+                                var f = classNameToFile(root, name);
+                                if (f.exists()) {
+                                    with(sourceIndex.read(f), source -> {
+                                        var hash = GenerationCache.hash(source);
+                                        if (nonNull(entry) && entry.hash().equals(hash) && f.getAbsolutePath().equals(entry.path())) {
+                                            templateRegistry.put(name, f, hash, entry.compact());
+                                            found.add(Pair.of(name, entry.compact()));
+                                        } else {
+                                            stale.put(name, Pair.of(f, hash));
+                                            found.add(Pair.of(name, source));
                                         }
-                                    }
-                                })));
+                                    });
+                                    break;
+                                }
+                            }
+                        });
+
+                found.forEach(template -> {
+                    var result = parse(template.getValue());
+                    if (result.isSuccessful()) {
+                        var unit = result.getResult().get();
+                        if (unit.getType(0) instanceof AnnotationDeclaration ann) {
+                            log.info("Processing template: {}", ann.getNameAsString());
+                            with(stale.get(template.getKey()), s -> with(templateRegistry, r ->
+                                    r.put(template.getKey(), s.getKey(), s.getValue(), TemplateRegistry.compact(unit, ann))));
+                            try {
+                                Structures.registerTemplate(ann);
+                            } catch (Exception e) {
+                                log.error("Unable to register template {}", template.getKey());
+                            }
+                        }
+                    } else {
+                        log.error("Failed template processing ({}) with:", template.getKey());
+                    }
+                });
             }
         }
 
-        var templates = new LinkedHashMap<String, Pair<CompilationUnit, Boolean>>();
-        roundEnv.getElementsAnnotatedWith(CodePrototypeTemplate.class).forEach(element ->
+        var templates = new LinkedHashMap<String, CompilationUnit>();
+        var templateElements = new HashMap<String, Element>();
+        collector.getElementsAnnotatedWith(CodePrototypeTemplate.class).forEach(element ->
                 with(readElementSource(element, null, null), source -> {
-                    var result = lookup.getParser().parse(source);
+                    var result = parse(source);
                     if (result.isSuccessful()) {
-                        templates.put(element.toString(), Pair.of(result.getResult().get(), true));
+                        templates.put(element.toString(), result.getResult().get());
+                        templateElements.put(element.toString(), element);
                     } else {
                         log.error("Failed template processing ({}) with:", element.toString());
                         result.getProblems().forEach(p ->
@@ -238,174 +633,404 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
                     }
                     AnnotationDiscoverer.writeTemplate(filer, element.toString());
                     var fileName = Holder.<String>blank();
-                    roundEnv.getElementsAnnotatedWith((TypeElement) element).forEach(e ->
+                    collector.getElementsAnnotatedWith((TypeElement) element).forEach(e ->
                             with(readElementSource(e, element, fileName), s ->
-                                    files.file(s).add(e, element, fileName.get())));
+                                    sources.add(new ElementSource(e, element, fileName.get(), s))));
                 }));
 
-        var shouldBreak = Holder.of(false);
-        var lastRun = -1;
-        var passes = Holder.of(0);
-        while (!templates.isEmpty()) {
-            if (lastRun == templates.size()) {
-                if (passes.get() > 2) {
-                    break;
-                } else {
-                    passes.set(passes.get() + 1);
+        var resolver = new TemplateResolver(templates, templateElements);
+        templates.keySet().forEach(resolver::resolve);
+    }
+
+    protected ParseResult<CompilationUnit> parse(String source) {
+        var event = new CodeGenEvents.ParseEvent();
+        event.begin();
+        ParseResult<CompilationUnit> result;
+        try (var timer = metrics.time("templates.parse")) {
+            result = lookup.getParser().parse(source);
+        }
+        if (event.shouldCommit()) {
+            event.length = source.getBytes(StandardCharsets.UTF_8).length;
+            result.getResult().ifPresent(unit -> {
+                event.prototype = CodeGenEvents.getPrototype(unit);
+                event.annotation = CodeGenEvents.getAnnotation(unit);
+            });
+            event.commit();
+        }
+        return result;
+    }
+
+    protected class TemplateResolver {
+
+        protected final Map<String, CompilationUnit> templates;
+        protected final Map<String, Element> elements;
+        protected final Map<String, Boolean> resolved = new HashMap<>();
+        protected final Map<String, Optional<CompilationUnit>> externals = new HashMap<>();
+        protected final Deque<String> path = new ArrayDeque<>();
+        protected final Set<String> cyclic = new HashSet<>();
+
+        protected TemplateResolver(Map<String, CompilationUnit> templates, Map<String, Element> elements) {
+            this.templates = templates;
+            this.elements = elements;
+        }
+
+        protected boolean resolve(String name) {
+            var local = templates.containsKey(name);
+            if (!local && defaultProperties.containsKey(name)) {
+                return true;
+            }
+
+            var done = resolved.get(name);
+            if (nonNull(done)) {
+                return done;
+            }
+
+            if (path.contains(name)) {
+                reportCycle(name);
+                return false;
+            }
+
+            if (!local && lazy && isPlainAnnotation(name)) {
+                resolved.put(name, false);
+                return false;
+            }
+
+            var unit = local ? templates.get(name) : findExternal(name);
+            var ann = isNull(unit) ? null : findTemplateDeclaration(name, unit);
+            if (isNull(ann)) {
+                resolved.put(name, false);
+                return false;
+            }
+
+            path.push(name);
+            var registered = false;
+            for (var a : ann.getAnnotations()) {
+                registered |= resolve(getExternalClassName(ann, a.getNameAsString()));
+            }
+            path.pop();
+
+            //External annotations are templates only when they lead to an already registered annotation
+            var result = !cyclic.contains(name) && (local || registered);
+            if (result) {
+                CodeGen.processTemplate(ann.getNameAsString(), unit);
+            }
+            resolved.put(name, result);
+            return result;
+        }
+
+        protected boolean isPlainAnnotation(String name) {
+            var type = elementUtils.getTypeElement(name);
+            return nonNull(type) && getSourceFile(getTopLevelType(type)) instanceof JavaFileObject source && source.getKind() == JavaFileObject.Kind.SOURCE &&
+                    !isCodeGenAnnotation(type, new HashSet<>());
+        }
+
+        protected CompilationUnit findExternal(String name) {
+            return externals.computeIfAbsent(name, n ->
+                    Optional.ofNullable(lookup.findExternal(n)).map(PrototypeDescription::getDeclarationUnit)).orElse(null);
+        }
+
+        protected AnnotationDeclaration findTemplateDeclaration(String name, CompilationUnit unit) {
+            return unit.getChildNodes().stream()
+                    .filter(AnnotationDeclaration.class::isInstance)
+                    .map(AnnotationDeclaration.class::cast)
+                    .filter(c -> c.getFullyQualifiedName().filter(name::equals).isPresent())
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        protected void reportCycle(String name) {
+            var cycle = new ArrayList<String>();
+            for (var it = path.descendingIterator(); it.hasNext(); ) {
+                var node = it.next();
+                if (!cycle.isEmpty() || node.equals(name)) {
+                    cycle.add(node);
                 }
+            }
+            cyclic.addAll(cycle);
+            cycle.add(name);
+            var message = "Template cycle detected: " + String.join(" -> ", cycle);
+            var element = elements.get(name);
+            if (nonNull(element)) {
+                error(element, "%s", message);
             } else {
-                lastRun = templates.size();
-                passes.set(0);
-            }
-            for (var entry : templates.entrySet()) {
-                var ann = entry.getValue().getKey().getChildNodes().stream()
-                        .filter(AnnotationDeclaration.class::isInstance)
-                        .map(AnnotationDeclaration.class::cast)
-                        .filter(c ->
-                                c.getFullyQualifiedName().filter(templates::containsKey).isPresent())
-                        .findFirst();
-                if (ann.isPresent()) {
-                    if (ann.get().getAnnotations().stream()
-                            .map(a -> getExternalClassName(ann.get(), a.getNameAsString()))
-                            .noneMatch(name -> {
-                                var pair = templates.get(name);
-                                if (nonNull(pair)) {
-                                    return passes.get() < 2 || pair.getValue();
-                                } else {
-                                    if (!defaultProperties.containsKey(name)) {
-                                        var ext = lookup.findExternal(name);
-                                        if (nonNull(ext)) {
-                                            templates.put(name, Pair.of(ext.getDeclarationUnit(), false));
-                                            shouldBreak.set(true);
-                                            return true;
-                                        }
-                                    } else if (!entry.getValue().getValue()) {
-                                        entry.setValue(Pair.of(entry.getValue().getKey(), true));
-                                        shouldBreak.set(true);
-                                    }
-                                }
-                                return false;
-                            })) {
-                        if (entry.getValue().getValue()) {
-                            CodeGen.processTemplate(ann.get().getNameAsString(), entry.getValue().getKey());
-                            templates.remove(entry.getKey());
-                            shouldBreak.set(true);
-                        }
-                    }
-                }
-                if (shouldBreak.get()) {
-                    shouldBreak.set(false);
-                    break;
-                }
+                log.error(message);
             }
         }
 
-        templates.forEach((name, pair) -> {
-            if (pair.getValue()) {
-                log.warn("Possible template not processed: {}", name);
-            }
-        });
     }
 
     protected void processConfigs(RoundEnvironment roundEnv) {
-        roundEnv.getElementsAnnotatedWith(CodeConfiguration.class).forEach(element ->
+        collector.getElementsAnnotatedWith(CodeConfiguration.class).forEach(element ->
                 AnnotationDiscoverer.writeConfig(filer, element.toString()));
     }
 
 
-    protected boolean processed() {
-        if (isPrototypeTest()) {
-            return true;
+    protected void deferIncomplete(List<ElementSource> sources) {
+        var incomplete = new HashSet<String>();
+        if (!isElementTest()) {
+            var done = new HashSet<String>();
+            lookup.parsed().forEach(p -> {
+                var owner = getOwner(p);
+                if (ownerElements.containsKey(owner)) {
+                    (p.isProcessed() ? done : incomplete).add(owner);
+                }
+            });
+            incomplete.removeAll(done);
+            incomplete.removeAll(failed);
         }
+        sources.forEach(s -> {
+            if (incomplete.contains(s.fileName())) {
+                deferred.add(nonNull(s.source()) ? s : new ElementSource(s.element(), s.annotation(), s.fileName(), readSource(s.element())));
+            } else {
+                completed.add(s.fileName());
+            }
+        });
+        if (!deferred.isEmpty()) {
+            log.info("Deferring {} prototype file(s) to the next round", incomplete.size());
+        }
+    }
 
-        try {
-            return new File(processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", "codegen.info").getName()).exists();
-        } catch (Exception e) {
-            return false;
+    protected void reportDeferred() {
+        deferred.stream()
+                .map(ElementSource::element)
+                .map(CodeGenAnnotationProcessor::getTopLevelType)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(e -> warning(e, "Prototype %s was not generated, some of its dependencies could not be resolved!", e.getQualifiedName()));
+        deferred.clear();
+    }
+
+    protected PrototypeIndex getUpstreamIndex() {
+        if (isNull(upstream)) {
+            upstream = PrototypeIndex.load(fileManager);
         }
+        return upstream;
     }
 
     protected void externalLookup(RoundEnvironment roundEnv) {
-        var roots = new HashSet<String>();
+        if (isNull(locatedRoots)) {
+            locatedRoots = locateSourceRoots();
+        }
+
+        var roots = new LinkedHashSet<>(locatedRoots);
+        if (roots.isEmpty()) {
+            if (nonNull(sourceRoots)) {
+                roots.addAll(sourceRoots);
+            }
+            roundEnv.getRootElements().stream()
+                    .filter(TypeElement.class::isInstance)
+                    .forEach(e -> with(findSourceRoot(getSourceFile(e)), roots::add));
+        }
+        roots.stream()
+                .filter(root -> isNull(sourceRoots) || !sourceRoots.contains(root))
+                .forEach(root -> log.info("Sources Root: {}", root));
+        sourceRoots = roots;
+        sourceIndex.index(roundEnv);
+        lookup.registerExternalLookup(this::lookupSource);
+        lookup.setSourcesRoots(roots);
+    }
+
+    protected Set<String> locateSourceRoots() {
+        var roots = new LinkedHashSet<String>();
+        with(options.get(TARGET_DIR_OPTION), dir -> {
+            if (isNotBlank(dir)) {
+                targetDir = new File(dir.trim()).getAbsoluteFile();
+            }
+        });
+        with(options.get(SOURCE_ROOTS_OPTION), value -> {
+            for (var root : value.split(File.pathSeparator)) {
+                if (isNotBlank(root)) {
+                    roots.add(new File(root.trim()).getAbsolutePath());
+                }
+            }
+        });
+        if (!roots.isEmpty() && nonNull(targetDir)) {
+            return roots;
+        }
+
         if (nonNull(fileManager)) {
-            var manager = fileManager;
-            var method = Reflection.findMethod("getLocation", manager.getClass(), JavaFileManager.Location.class);
-            if (isNull(method)) {
+            Object manager = fileManager;
+            if (!JavacAccess.hasLocations(manager)) {
                 try {
-                    manager = Reflection.getFieldValue((Object) Reflection.getFieldValue(manager, "clientJavaFileManager"), "fileManager");
-                    method = Reflection.findMethod("getLocation", manager.getClass(), JavaFileManager.Location.class);
+                    manager = JavacAccess.getField(JavacAccess.getField(manager, "clientJavaFileManager"), "fileManager");
                 } catch (Exception e) {
                     //Do nothing
                 }
             }
-            if (nonNull(method)) {
-                if (Reflection.invoke(method, manager, StandardLocation.SOURCE_PATH) instanceof Iterable<?> files) {
-                    files.forEach(f -> {
-                        if (f instanceof File file) {
-                            var path = file.getAbsolutePath();
-                            roots.add(path);
-                            if (isNull(sourceRoots)) {
-                                log.info("Sources Root: {}", path);
+            if (JavacAccess.hasLocations(manager)) {
+                var explicit = !roots.isEmpty();
+                if (JavacAccess.getLocation(manager, StandardLocation.SOURCE_PATH) instanceof Iterable<?> files) {
+                    if (!explicit) {
+                        files.forEach(f -> {
+                            if (f instanceof File file) {
+                                roots.add(file.getAbsolutePath());
                             }
-                        }
-                    });
-                    if (Reflection.invoke(method, manager, StandardLocation.CLASS_OUTPUT) instanceof Iterable<?> targets) {
-                        targetDir = (File) targets.iterator().next();
+                        });
                     }
                 }
+                if (isNull(targetDir) && JavacAccess.getLocation(manager, StandardLocation.CLASS_OUTPUT) instanceof Iterable<?> targets && targets.iterator().hasNext()) {
+                    targetDir = (File) targets.iterator().next();
+                }
             }
         }
+        if (isNull(targetDir)) {
+            targetDir = getClassOutput();
+        }
+        return roots;
+    }
 
-        if (roots.isEmpty()) {
-            var rootElements = roundEnv.getRootElements().stream().filter(TypeElement.class::isInstance).toList();
-            rootElements.forEach(e -> {
-                var source = getSourceFile(e);
-                if (source instanceof FileObject fileObject) {
-                    try {
-                        var file = new File(fileObject.toUri());
-                        while (nonNull(file.getParent())) {
-                            file = file.getParentFile();
-                            if ("java".equals(file.getName())) {
-                                var root = file.getAbsolutePath();
-                                roots.add(root);
-                                if (isNull(sourceRoots)) {
-                                    log.info("Sources Root: {}", root);
-                                }
-                                break;
-                            }
-                        }
-                    } catch (Exception ex) {
-                        //Ignore
-                    }
+    protected String findSourceRoot(Object source) {
+        if (source instanceof FileObject fileObject) {
+            try {
+                var dir = new File(fileObject.toUri()).getParentFile();
+                if (nonNull(dir)) {
+                    return rootsByDirectory.computeIfAbsent(dir.getPath(), k -> Optional.ofNullable(walkSourceRoot(dir))).orElse(null);
                 }
-            });
+            } catch (Exception ex) {
+                //Ignore
+            }
         }
-        lookup.registerExternalLookup(s -> {
-            var ext = roundEnv.getRootElements().stream().filter(TypeElement.class::isInstance).map(TypeElement.class::cast).filter(e -> e.getQualifiedName().toString().equals(s)).findFirst();
-            if (ext.isPresent()) {
-                var source = getSourceFile(ext.get());
-                log.info("Accessing: {}", ext.get().getSimpleName());
-                try {
-                    return ((FileObject) source).getCharContent(true).toString();
-                } catch (Exception ex) {
-                    log.error("Unable to read {}", ext.get());
-                }
-            } else if (!roots.isEmpty()) {
-                for (var root : roots) {
-                    var file = classNameToFile(root, s);
-                    if (file.exists()) {
-                        try {
-                            return Files.readString(file.toPath(), Charset.defaultCharset());
-                        } catch (Exception ex) {
-                            log.error("Unable to read {}", file);
-                        }
+        return null;
+    }
+
+    protected String walkSourceRoot(File dir) {
+        for (var file = dir; nonNull(file); file = file.getParentFile()) {
+            if ("java".equals(file.getName())) {
+                return file.getAbsolutePath();
+            }
+            //Directories above an already walked one resolve to the same root
+            var known = rootsByDirectory.get(file.getPath());
+            if (nonNull(known)) {
+                return known.orElse(null);
+            }
+        }
+        return null;
+    }
+
+    protected String lookupSource(String className) {
+        try (var timer = metrics.time("lookup")) {
+            var event = new CodeGenEvents.LookupEvent();
+            event.begin();
+            var found = locateSource(className);
+            switch (found.origin()) {
+                case CACHED_MISS -> metrics.count("lookup.miss.cached");
+                case STUB -> {
+                    log.debug("Stubbing: {}", className);
+                    metrics.count("lookup.stub");
+                }
+                case ROUND -> log.info("Accessing: {}", found.name());
+                case INDEXED -> {
+                    log.info("Accessing indexed: {}", found.name());
+                    metrics.count("lookup.indexed");
+                    indexed.add(found.name());
+                }
+                default -> {
+                    //Nothing to track
+                }
+            }
+            var result = found.source();
+            metrics.count(nonNull(result) ? "lookup.hit" : "lookup.miss");
+            if (event.shouldCommit()) {
+                event.prototype = className;
+                var type = sourceIndex.getType(className);
+                event.annotation = CodeGenEvents.getAnnotation(nonNull(type) ? type : elementUtils.getTypeElement(className));
+                event.found = nonNull(result);
+                event.commit();
+            }
+            return result;
+        }
+    }
+
+    protected String findSource(String className) {
+        //Plain read, lookups of the generation itself go through lookupSource
+        return locateSource(className).source();
+    }
+
+    protected FoundSource locateSource(String className) {
+        if (sourceIndex.isMissing(className)) {
+            return new FoundSource(null, className, SourceOrigin.CACHED_MISS);
+        }
+
+        var ext = sourceIndex.getType(className);
+        if (lazy) {
+            var stub = stubSource(nonNull(ext) ? ext : elementUtils.getTypeElement(className));
+            if (nonNull(stub)) {
+                return new FoundSource(stub, className, SourceOrigin.STUB);
+            }
+        }
+        if (nonNull(ext)) {
+            if (getSourceFile(ext) instanceof FileObject source) {
+                var result = sourceIndex.read(source);
+                if (nonNull(result)) {
+                    return new FoundSource(result, ext.getSimpleName().toString(), SourceOrigin.ROUND);
+                }
+            } else {
+                log.error("Unable to read {}", ext);
+            }
+        } else if (nonNull(sourceRoots)) {
+            for (var root : sourceRoots) {
+                var file = classNameToFile(root, className);
+                if (file.exists()) {
+                    var result = sourceIndex.read(file);
+                    if (nonNull(result)) {
+                        return new FoundSource(result, className, SourceOrigin.SOURCE_ROOT);
                     }
                 }
             }
-            return null;
-        });
-        sourceRoots = roots;
-        lookup.setSourcesRoots(roots);
+        }
+
+        //Prototype of an upstream module, served from the index shipped in its jar
+        var indexed = getUpstreamIndex().find(className);
+        if (nonNull(indexed)) {
+            return new FoundSource(indexed.source(), indexed.prototype(), SourceOrigin.INDEXED);
+        }
+
+        //Type is not part of this round (partial compilation), try the compiler's source path
+        var type = elementUtils.getTypeElement(className);
+        if (nonNull(type) && getSourceFile(type) instanceof JavaFileObject source && source.getKind() == JavaFileObject.Kind.SOURCE) {
+            try {
+                return new FoundSource(sourceIndex.tryRead(source), className, SourceOrigin.SOURCE_PATH);
+            } catch (Exception ex) {
+                //Type is loaded from class file
+            }
+        }
+
+        sourceIndex.markMissing(className);
+        return new FoundSource(null, className, SourceOrigin.MISSING);
+    }
+
+    protected String stubSource(TypeElement type) {
+        //Only source based types carry all of their annotations, class files may have lost the CodeGen ones
+        if (nonNull(type) && getSourceFile(getTopLevelType(type)) instanceof JavaFileObject source && source.getKind() == JavaFileObject.Kind.SOURCE && !isCodeGenType(getTopLevelType(type))) {
+            return TypeStub.of(type, elementUtils);
+        }
+        return null;
+    }
+
+    protected boolean isCodeGenType(TypeElement type) {
+        for (var mirror : elementUtils.getAllAnnotationMirrors(type)) {
+            if (mirror.getAnnotationType().asElement() instanceof TypeElement ann && isCodeGenAnnotation(ann, new HashSet<>())) {
+                return true;
+            }
+        }
+        return type.getEnclosedElements().stream()
+                .filter(TypeElement.class::isInstance)
+                .anyMatch(e -> isCodeGenType((TypeElement) e));
+    }
+
+    protected boolean isCodeGenAnnotation(TypeElement annotation, Set<String> visited) {
+        var name = annotation.getQualifiedName().toString();
+        if (defaultProperties.containsKey(name) || CodePrototypeTemplate.class.getCanonicalName().equals(name) || CodeConfiguration.class.getCanonicalName().equals(name)) {
+            return true;
+        }
+        if (visited.add(name)) {
+            for (var mirror : annotation.getAnnotationMirrors()) {
+                if (mirror.getAnnotationType().asElement() instanceof TypeElement ann && isCodeGenAnnotation(ann, visited)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     protected File classNameToFile(String root, String className) {
@@ -413,29 +1038,22 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
     }
 
     protected Object getSourceFile(Element element) {
-        var source = Reflection.getFieldValueUnsafe(element, "sourcefile");
-        if (isNull(source)) {
-            return Reflection.getFieldValue(element, "sourcefile");
-        }
-        return source;
+        return JavacAccess.getSourceFile(element);
     }
 
-    protected void processAnnotation(RoundEnvironment roundEnv, Parsables files, Class<? extends Annotation> cls, List<Element> elements) {
-        for (var type : roundEnv.getElementsAnnotatedWith(cls)) {
+    protected void processAnnotation(RoundEnvironment roundEnv, List<ElementSource> sources, Class<? extends Annotation> cls, List<Element> elements) {
+        for (var type : collector.getElementsAnnotatedWith(cls)) {
             var fileName = Holder.<String>blank();
             elements.add(type);
             with(readElementSource(type, cls, fileName), source ->
-                    files.file(source).add(type, cls, fileName.get()));
+                    sources.add(new ElementSource(type, cls, fileName.get(), source)));
         }
     }
 
-    protected static String readElementSource(Element eType, Object annotation, Holder<String> fileName) {
+    protected String readElementSource(Element eType, Object annotation, Holder<String> fileName) {
         var type = findClassType(eType);
         try {
-            JavaFileObject source = Reflection.getFieldValueUnsafe(type, "sourcefile");
-            if (isNull(source)) {
-                source = Reflection.getFieldValue(type, "sourcefile");
-            }
+            var source = (JavaFileObject) JavacAccess.getSourceFile(type);
             log.info("Processing: {} ({}: {}{})", type.getSimpleName(), eType.getKind(), eType.getSimpleName().toString(), nonNull(annotation) ? " - @" + calcAnnotationName(annotation) : "");
             if (nonNull(fileName)) {
                 try {
@@ -444,7 +1062,7 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
                     fileName.set("<unknown>");
                 }
             }
-            return source.getCharContent(true).toString();
+            return sourceIndex.read(source);
         } catch (Exception e) {
             log.error("Unable to process {}", type);
         }
@@ -472,41 +1090,66 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
         return null;
     }
 
-    protected void saveFile(CompilationUnit unit, String path) {
+    protected boolean isIndexed(PrototypeDescription<ClassOrInterfaceDeclaration> p) {
+        if (indexed.isEmpty() || p instanceof CustomDescription || isNull(p.getDeclarationUnit())) {
+            return false;
+        }
+        return p.getDeclarationUnit().getTypes().stream()
+                .map(t -> t.getFullyQualifiedName().orElse(null))
+                .anyMatch(indexed::contains);
+    }
+
+    protected boolean prototypeExists(String name) {
+        if (nonNull(sourceRoots)) {
+            return sourceRoots.stream().anyMatch(root -> classNameToFile(root, name).exists());
+        }
+        return nonNull(elementUtils.getTypeElement(name));
+    }
+
+    protected void indexParsed(PrototypeDescription<ClassOrInterfaceDeclaration> p) {
+        with(PrototypeIndex.describe(p), entry -> {
+            index.add(entry);
+            generatedNames.add(entry.prototype(), entry.interfaceName(), entry.implementationName());
+            if (nonNull(cache)) {
+                cache.record(getOwner(p), entry.prototype(), PrototypeIndex.MARKER, entry.encode());
+            }
+        });
+    }
+
+    protected void saveFile(PrototypeDescription<ClassOrInterfaceDeclaration> p, CompilationUnit unit, String path) {
         if (nonNull(unit)) {
             var type = unit.getType(0);
             try {
-                var printer = new CodeGenPrettyPrinter();
-
                 sortImports(unit);
                 if (unit.getType(0).isClassOrInterfaceDeclaration()) {
                     sortClass(unit.getType(0).asClassOrInterfaceDeclaration());
                 }
 
-                if (isNull(path)) {
-                    try (var stream = filer.createSourceFile(type.getFullyQualifiedName().get()).openOutputStream()) {
-                        log.info("Writing file - {}", type.getFullyQualifiedName().get());
-                        try (var writer = new PrintWriter(stream)) {
-                            writer.write(printer.print(unit));
-                        }
-                    }
-                } else {
-                    unit.getPackageDeclaration().ifPresent(p -> {
-                        var fileName = path + '/' + p.getNameAsString().replace(".", "/") + '/' + unit.getType(0).getNameAsString() + ".java";
-                        log.info("Writing file - {}", fileName);
-                        var f = new File(fileName);
-                        if (f.getParentFile().exists() || f.getParentFile().mkdirs()) {
+                if (isNull(path) || unit.getPackageDeclaration().isPresent()) {
+                    var name = type.getFullyQualifiedName().get();
+                    if (written.add(isNull(path) ? name : getFileName(path, name))) {
+                        var owner = getOwner(p);
+                        var originatingElements = getOriginatingElements(owner);
+                        var declaration = p.getDeclarationUnit();
+                        outputs.submit(() -> {
                             try {
-                                var writer = new BufferedWriter(new FileWriter(fileName));
-                                writer.write(printer.print(unit));
-                                writer.close();
-                            } catch (IOException e) {
-                                log.error("Unable to open for write file {}", fileName);
+                                var event = new CodeGenEvents.SaveEvent();
+                                event.begin();
+                                var content = new CodeGenPrettyPrinter().print(unit);
+                                var success = isNull(path) || writePath(getFileName(path, name), content);
+                                if (event.shouldCommit()) {
+                                    event.prototype = nonNull(declaration) ? CodeGenEvents.getPrototype(declaration) : name;
+                                    event.annotation = nonNull(declaration) ? CodeGenEvents.getAnnotation(declaration) : "";
+                                    event.file = name;
+                                    event.size = content.getBytes(StandardCharsets.UTF_8).length;
+                                    event.commit();
+                                }
+                                return new PrintedSource(name, path, content, owner, originatingElements, success);
+                            } catch (Exception e) {
+                                throw new GenericCodeGenException("Unable to save " + name, e);
                             }
-                        } else {
-                            log.error("Unable to write file {}", fileName);
-                        }
-                    });
+                        });
+                    }
                 }
             } catch (Exception e) {
                 throw new GenericCodeGenException("Unable to save " + type.getFullyQualifiedName().get(), e);
@@ -514,6 +1157,262 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
         }
     }
 
+    protected void flushOutputs(boolean wait) {
+        (wait ? outputs.drain() : outputs.poll()).forEach(printed -> {
+            try {
+                if (isNull(printed.path())) {
+                    writeSource(printed.name(), printed.content(), printed.originatingElements());
+                }
+            } catch (Exception e) {
+                throw new GenericCodeGenException("Unable to save " + printed.name(), e);
+            }
+            if (printed.success() && nonNull(cache)) {
+                cache.record(printed.owner(), printed.name(), printed.path(), printed.content());
+            }
+        });
+    }
+
+    protected boolean writeFile(String name, String path, String content, Element... originatingElements) throws IOException {
+        if (PrototypeIndex.MARKER.equals(path)) {
+            with(PrototypeIndex.Entry.decode(content), entry -> {
+                index.add(entry);
+                generatedNames.add(entry.prototype(), entry.interfaceName(), entry.implementationName());
+            });
+            return true;
+        }
+        if (isNull(path)) {
+            if (written.add(name)) {
+                writeSource(name, content, originatingElements);
+                return true;
+            }
+        } else {
+            var fileName = getFileName(path, name);
+            if (written.add(fileName)) {
+                return writePath(fileName, content);
+            }
+        }
+        return false;
+    }
+
+    protected void writeSource(String name, String content, Element... originatingElements) throws IOException {
+        try (var writer = filer.createSourceFile(name, originatingElements).openWriter()) {
+            log.info("Writing file - {}", name);
+            writer.write(content);
+            metrics.written(content);
+        }
+    }
+
+    protected boolean writePath(String fileName, String content) {
+        var f = new File(fileName);
+        var hash = GenerationCache.hash(content);
+        if (nonNull(manifest) && manifest.isUnchanged(f, hash)) {
+            log.debug("Unchanged file - {}", fileName);
+            metrics.count("files.unchanged");
+            return true;
+        }
+        log.info("Writing file - {}", fileName);
+        try {
+            Files.createDirectories(f.getParentFile().toPath());
+        } catch (IOException e) {
+            log.error("Unable to write file {}", fileName);
+            return false;
+        }
+        try (var writer = Files.newBufferedWriter(f.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(content);
+            metrics.written(content);
+        } catch (IOException e) {
+            log.error("Unable to open for write file {}", fileName);
+            return false;
+        }
+        if (nonNull(manifest)) {
+            manifest.update(f, hash);
+        }
+        return true;
+    }
+
+    protected static String getFileName(String path, String name) {
+        return path + '/' + name.replace(".", "/") + ".java";
+    }
+
+    protected void initCache() {
+        if (isNull(cache) && nonNull(targetDir) && getBooleanOption(CACHE_OPTION, true)) {
+            cache = new GenerationCache(new File(targetDir, "binis/cache"));
+        }
+        if (isNull(manifest) && nonNull(targetDir)) {
+            manifest = new OutputManifest(new File(targetDir, "binis/outputs.manifest"));
+        }
+        if (isNull(templateRegistry) && nonNull(targetDir)) {
+            templateRegistry = new TemplateRegistry(new File(targetDir, "binis/templates.registry"));
+        }
+        if (isNull(generatedNames)) {
+            generatedNames = new GeneratedNames(nonNull(targetDir) ? new File(targetDir, "binis/generated.names") : null);
+        }
+    }
+
+    protected void saveManifest() {
+        with(templateRegistry, TemplateRegistry::save);
+        with(generatedNames, GeneratedNames::save);
+        if (nonNull(manifest)) {
+            manifest.save();
+            if (manifest.getSkipped() > 0) {
+                log.info("Skipped writing {} unchanged file(s)", manifest.getSkipped());
+            }
+        }
+    }
+
+    protected List<ElementSource> reuseCached(RoundEnvironment roundEnv, List<ElementSource> sources) {
+        partialGeneration = false;
+        aggregateKey = null;
+        if (isNull(cache) || isElementTest() || sources.isEmpty()) {
+            return sources;
+        }
+
+        ownerKeys.clear();
+        var owners = new TreeMap<String, List<ElementSource>>();
+        sources.forEach(s -> owners.computeIfAbsent(s.fileName(), k -> new ArrayList<>()).add(s));
+
+        var inputs = calcCacheInputs(roundEnv);
+        owners.forEach((owner, list) -> {
+            var types = list.stream().map(s -> getTopLevelType(s.element())).filter(Objects::nonNull).toList();
+            ownerKeys.put(owner, cacheKeys.calcKey(inputs, list.get(0).source(), types));
+        });
+        aggregateKey = GenerationCache.hash(ownerKeys.values().toArray(String[]::new));
+
+        var partial = nonNull(cache.load(aggregateOwner, GenerationCache.NO_AGGREGATE));
+        var aggregate = partial ? List.<GenerationCache.CachedFile>of() : cache.load(aggregateOwner, aggregateKey);
+        if (isNull(aggregate)) {
+            return sources;
+        }
+
+        var hits = new HashMap<String, List<GenerationCache.CachedFile>>();
+        ownerKeys.forEach((owner, key) -> with(cache.load(owner, key), files -> hits.put(owner, files)));
+        if (hits.isEmpty() || (!partial && hits.size() != owners.size())) {
+            return sources;
+        }
+
+        try {
+            for (var hit : hits.entrySet()) {
+                cache.restored(hit.getKey());
+                for (var file : hit.getValue()) {
+                    writeFile(file.name(), file.path(), file.content(), getOriginatingElements(hit.getKey()));
+                }
+            }
+            for (var file : aggregate) {
+                writeFile(file.name(), file.path(), file.content(), getOriginatingElements(aggregateOwner));
+            }
+        } catch (Exception e) {
+            throw new GenericCodeGenException("Unable to restore cached sources!", e);
+        }
+
+        log.info("Reused cached sources for {} of {} prototype files", hits.size(), owners.size());
+        partialGeneration = true;
+        return sources.stream().filter(s -> !hits.containsKey(s.fileName())).toList();
+    }
+
+    protected void storeCached() {
+        if (nonNull(cache) && nonNull(aggregateKey)) {
+            storeCached(new ArrayList<>(ownerKeys.keySet()));
+            if (!partialGeneration) {
+                cache.store(aggregateOwner, cache.isRecorded(aggregateOwner) ? aggregateKey : GenerationCache.NO_AGGREGATE);
+            } else if (cache.isRecorded(aggregateOwner)) {
+                log.warn("Aggregated sources generated from partial input, cache will be rebuilt on next run!");
+                cache.remove(aggregateOwner);
+            }
+            cache.clearRecorded();
+            aggregateKey = null;
+        }
+    }
+
+    protected void storeCached(Collection<String> owners) {
+        if (nonNull(cache)) {
+            owners.forEach(owner -> with(ownerKeys.remove(owner), key -> {
+                if (!partialGeneration || cache.isRecorded(owner)) {
+                    cache.store(owner, key);
+                }
+            }));
+        }
+    }
+
+    protected void registerOwners(List<ElementSource> sources) {
+        typeOwners.clear();
+        ownerElements.clear();
+        cacheKeys = new CacheKeys(elementUtils, this::findSource, generatedNames);
+        sources.forEach(s -> {
+            ownerElements.computeIfAbsent(s.fileName(), k -> new ArrayList<>()).add(s.element());
+            with(getTopLevelType(s.element()), type -> {
+                typeOwners.put(type.getQualifiedName().toString(), s.fileName());
+                cacheKeys.register(type);
+            });
+        });
+    }
+
+    protected Element[] getOriginatingElements(String owner) {
+        var elements = aggregateOwner.equals(owner) ?
+                ownerElements.values().stream().flatMap(List::stream) :
+                ownerElements.getOrDefault(owner, List.of()).stream();
+        return elements
+                .map(CodeGenAnnotationProcessor::getTopLevelType)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toArray(Element[]::new);
+    }
+
+    protected String getOwner(PrototypeDescription<ClassOrInterfaceDeclaration> p) {
+        if (!(p instanceof CustomDescription) && nonNull(p.getDeclarationUnit())) {
+            for (var type : p.getDeclarationUnit().getTypes()) {
+                var owner = type.getFullyQualifiedName().map(typeOwners::get);
+                if (owner.isPresent()) {
+                    return owner.get();
+                }
+            }
+        }
+        return aggregateOwner;
+    }
+
+    protected String calcCacheInputs(RoundEnvironment roundEnv) {
+        var inputs = new ArrayList<String>();
+        inputs.add(VERSION);
+        inputs.add(DiscoveryCache.getFingerprint());
+        new TreeMap<>(options).forEach((key, value) -> inputs.add(key + '=' + value));
+        inputs.addAll(new TreeSet<>(defaultProperties.keySet()));
+        collector.getElementsAnnotatedWith(CodeConfiguration.class).forEach(e -> inputs.add(readSource(e)));
+        return GenerationCache.hash(inputs.toArray(String[]::new));
+    }
+
+    protected String readSource(Element element) {
+        try {
+            return sourceIndex.read((FileObject) getSourceFile(findClassType(element)));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    protected boolean getBooleanOption(String name, boolean defaultValue) {
+        var value = options.get(name);
+        return isNotBlank(value) ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+
+    protected int getIntOption(String name, int defaultValue) {
+        var value = options.get(name);
+        if (isNotBlank(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value for option {}: {}", name, value);
+            }
+        }
+        return defaultValue;
+    }
+
+    protected static TypeElement getTopLevelType(Element element) {
+        return CacheKeys.getTopLevelType(element);
+    }
+
+    protected static String getVersion(Class<?> cls) {
+        var version = cls.getPackage().getImplementationVersion();
+        return nonNull(version) ? version : "dev";
+    }
+
     protected static String getBasePath(PrototypeData properties, boolean implementation) {
         String result = null;
 
@@ -541,9 +1440,9 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
 
     @Override
     public Set<String> getSupportedAnnotationTypes() {
-        discovered = AnnotationDiscoverer.findAnnotations();
-        discovered.stream().filter(Discoverer.DiscoveredService::isTemplate).forEach(a ->
-                Structures.registerTemplate(a.getCls()));
+        try (var timer = metrics.time("discovery")) {
+            discovered = DiscoveryCache.findAnnotations(a -> Structures.registerTemplate(a.getCls()));
+        }
         var result = new HashSet<>(defaultProperties.keySet());
         result.add(CodePrototypeTemplate.class.getCanonicalName());
         result.add(CodeConfiguration.class.getCanonicalName());
@@ -552,7 +1451,43 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
 
     @Override
     public Set<String> getSupportedOptions() {
-        return supportedOptions;
+        var result = new HashSet<>(supportedOptions);
+        result.add(CACHE_OPTION);
+        result.add(THREADS_OPTION);
+        result.add(COMPONENTS_OPTION);
+        result.add(STREAMING_OPTION);
+        result.add(REPORT_OPTION);
+        result.add(REPORT_SLOWEST_OPTION);
+        result.add(SOURCE_ROOTS_OPTION);
+        result.add(TARGET_DIR_OPTION);
+        result.add(LAZY_OPTION);
+        result.add(BUDGET_TIME_OPTION);
+        result.add(BUDGET_MEMORY_OPTION);
+        //Gradle asks dynamic processors after init whether they are incremental
+        if (!hasUntrackedOutputs()) {
+            result.add(GRADLE_AGGREGATING);
+        }
+        return result;
+    }
+
+    protected boolean hasUntrackedOutputs() {
+        //Sources written to custom paths bypass the Filer, Gradle can not clean them up on incremental builds
+        if (isNull(filer)) {
+            return false;
+        }
+        var dir = nonNull(options) && isNotBlank(options.get(TARGET_DIR_OPTION)) ? new File(options.get(TARGET_DIR_OPTION).trim()) : getClassOutput();
+        if (nonNull(dir) && !new OutputManifest(new File(dir, "binis/outputs.manifest")).isEmpty()) {
+            log.info("Sources are generated to custom paths, incremental processing is disabled");
+            return true;
+        }
+        return false;
+    }
+
+    protected void warning(Element e, String msg, Object... args) {
+        messager.printMessage(
+                Diagnostic.Kind.WARNING,
+                String.format(msg, args),
+                e);
     }
 
     protected void error(Element e, String msg, Object... args) {
@@ -563,4 +1498,22 @@ public class CodeGenAnnotationProcessor extends AbstractProcessor {
 
     }
 
+    protected record ElementSource(Element element, Object annotation, String fileName, String source) {
+
+        public ElementSource withoutSource() {
+            return new ElementSource(element, annotation, fileName, null);
+        }
+
+    }
+
+    protected enum SourceOrigin {
+        CACHED_MISS, STUB, ROUND, SOURCE_ROOT, INDEXED, SOURCE_PATH, MISSING
+    }
+
+    protected record FoundSource(String source, String name, SourceOrigin origin) {
+    }
+
+    protected record PrintedSource(String name, String path, String content, String owner, Element[] originatingElements, boolean success) {
+    }
+
 }
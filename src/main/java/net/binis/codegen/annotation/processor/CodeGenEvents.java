@@ -0,0 +1,129 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import jdk.jfr.*;
+
+import javax.lang.model.element.Element;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.isNull;
+
+public class CodeGenEvents {
+
+    protected static final String CATEGORY = "Binis CodeGen";
+
+    private CodeGenEvents() {
+        //Do nothing
+    }
+
+    public static String getPrototype(CompilationUnit unit) {
+        return unit.getTypes().isEmpty() ? "" : unit.getType(0).getFullyQualifiedName().orElseGet(unit.getType(0)::getNameAsString);
+    }
+
+    public static String getAnnotation(CompilationUnit unit) {
+        return unit.getTypes().isEmpty() ? "" : unit.getType(0).getAnnotations().stream()
+                .map(AnnotationExpr::getNameAsString)
+                .collect(Collectors.joining(", "));
+    }
+
+    public static String getAnnotation(Element element) {
+        return isNull(element) ? "" : element.getAnnotationMirrors().stream()
+                .map(mirror -> mirror.getAnnotationType().asElement().getSimpleName().toString())
+                .collect(Collectors.joining(", "));
+    }
+
+    @Name("net.binis.codegen.Parse")
+    @Label("Parse")
+    @Description("Source parsed by the annotation processor")
+    @Category({CATEGORY, "Parse"})
+    public static class ParseEvent extends Event {
+
+        @Label("Prototype")
+        public String prototype;
+
+        @Label("Annotation")
+        public String annotation;
+
+        @Label("Length")
+        @DataAmount(DataAmount.BYTES)
+        public long length;
+
+    }
+
+    @Name("net.binis.codegen.Generation")
+    @Label("Generation")
+    @Description("Prototypes processed by CodeGen.processSources")
+    @Category({CATEGORY, "Generation"})
+    public static class GenerationEvent extends Event {
+
+        @Label("Prototype")
+        public String prototype;
+
+        @Label("Annotation")
+        public String annotation;
+
+        @Label("Elements")
+        public int elements;
+
+    }
+
+    @Name("net.binis.codegen.Lookup")
+    @Label("External Lookup")
+    @Description("Source requested through the external lookup callback")
+    @Category({CATEGORY, "Lookup"})
+    public static class LookupEvent extends Event {
+
+        @Label("Prototype")
+        public String prototype;
+
+        @Label("Annotation")
+        public String annotation;
+
+        @Label("Found")
+        public boolean found;
+
+    }
+
+    @Name("net.binis.codegen.Save")
+    @Label("Save")
+    @Description("Generated source printed and written")
+    @Category({CATEGORY, "Save"})
+    public static class SaveEvent extends Event {
+
+        @Label("Prototype")
+        public String prototype;
+
+        @Label("Annotation")
+        public String annotation;
+
+        @Label("File")
+        public String file;
+
+        @Label("Size")
+        @DataAmount(DataAmount.BYTES)
+        public long size;
+
+    }
+
+}
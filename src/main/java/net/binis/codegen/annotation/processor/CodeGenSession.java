@@ -0,0 +1,96 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static net.binis.codegen.generation.core.Helpers.lookup;
+import static net.binis.codegen.generation.core.Structures.defaultProperties;
+
+@Slf4j
+public class CodeGenSession {
+
+    protected static final CodeGenSession instance = new CodeGenSession();
+
+    protected Set<String> builtinTemplates;
+    protected Set<String> classpathTemplates;
+    protected String fingerprint;
+    protected int compilations;
+
+    protected CodeGenSession() {
+        //Do nothing
+    }
+
+    public static CodeGenSession get() {
+        return instance;
+    }
+
+    public synchronized void begin() {
+        snapshotBuiltins();
+        if (compilations++ > 0) {
+            log.info("Reusing CodeGen session (compilation #{})", compilations);
+            if (nonNull(classpathTemplates)) {
+                //Templates registered from the sources of previous compilations
+                defaultProperties.keySet().retainAll(classpathTemplates);
+            }
+            try {
+                lookup.parsed().clear();
+                lookup.custom().clear();
+            } catch (UnsupportedOperationException e) {
+                log.warn("Unable to clear prototypes of previous compilation!");
+            }
+        }
+    }
+
+    public synchronized void reset() {
+        //Classpath changed, keep only the built-in templates until the new ones are registered
+        snapshotBuiltins();
+        defaultProperties.keySet().retainAll(builtinTemplates);
+        classpathTemplates = null;
+        fingerprint = null;
+    }
+
+    public synchronized void discovered(String fingerprint) {
+        this.fingerprint = fingerprint;
+        classpathTemplates = new HashSet<>(defaultProperties.keySet());
+        ElementCollector.clearClasses();
+    }
+
+    protected void snapshotBuiltins() {
+        if (isNull(builtinTemplates)) {
+            builtinTemplates = new HashSet<>(defaultProperties.keySet());
+        }
+    }
+
+    public synchronized String getFingerprint() {
+        return fingerprint;
+    }
+
+    public synchronized int getCompilations() {
+        return compilations;
+    }
+
+}
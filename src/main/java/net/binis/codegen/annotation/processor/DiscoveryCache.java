@@ -0,0 +1,148 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import lombok.extern.slf4j.Slf4j;
+import net.binis.codegen.discoverer.AnnotationDiscoverer;
+import net.binis.codegen.discovery.Discoverer;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+@Slf4j
+public class DiscoveryCache {
+
+    protected static final String RESOURCE = "binis/annotations";
+    protected static final String PACKAGE = "net/binis/codegen";
+    protected static final Map<ClassLoader, Entry> entries = new WeakHashMap<>();
+
+    private DiscoveryCache() {
+        //Do nothing
+    }
+
+    public static synchronized List<Discoverer.DiscoveredService> findAnnotations(Consumer<Discoverer.DiscoveredService> onTemplate) {
+        var loader = getClassLoader();
+        var fingerprint = fingerprint(loader);
+        var session = CodeGenSession.get();
+        var entry = entries.get(loader);
+        if (nonNull(entry) && entry.fingerprint().equals(fingerprint)) {
+            var services = entry.services().get();
+            if (nonNull(services)) {
+                if (!fingerprint.equals(session.getFingerprint())) {
+                    //Templates of another classpath are registered
+                    session.reset();
+                    register(services, fingerprint, onTemplate);
+                }
+                return services;
+            }
+        }
+
+        session.reset();
+        var services = List.copyOf(AnnotationDiscoverer.findAnnotations());
+        register(services, fingerprint, onTemplate);
+        //Services hold classes of the loader, keep them softly so the loader can still be collected
+        entries.put(loader, new Entry(fingerprint, new SoftReference<>(services)));
+        return services;
+    }
+
+    protected static void register(List<Discoverer.DiscoveredService> services, String fingerprint, Consumer<Discoverer.DiscoveredService> onTemplate) {
+        services.stream().filter(Discoverer.DiscoveredService::isTemplate).forEach(onTemplate);
+        CodeGenSession.get().discovered(fingerprint);
+    }
+
+    public static synchronized String getFingerprint() {
+        var loader = getClassLoader();
+        var entry = entries.get(loader);
+        return nonNull(entry) ? entry.fingerprint() : fingerprint(loader);
+    }
+
+    public static synchronized void clear() {
+        entries.clear();
+    }
+
+    protected static ClassLoader getClassLoader() {
+        var loader = Thread.currentThread().getContextClassLoader();
+        return isNull(loader) ? DiscoveryCache.class.getClassLoader() : loader;
+    }
+
+    protected static String fingerprint(ClassLoader loader) {
+        //Template providers and every CodeGen extension jar (enrichers included) affect the generated code
+        var parts = new TreeSet<String>();
+        try {
+            for (var name : List.of(RESOURCE, PACKAGE)) {
+                var resources = loader.getResources(name);
+                while (resources.hasMoreElements()) {
+                    parts.add(describe(resources.nextElement()));
+                }
+            }
+            describeClasspath(loader, parts);
+        } catch (Exception e) {
+            log.warn("Unable to fingerprint classpath ({})", e.getMessage());
+            parts.add(UUID.randomUUID().toString());
+        }
+        return GenerationCache.hash(parts.toArray(String[]::new));
+    }
+
+    protected static void describeClasspath(ClassLoader loader, Set<String> parts) throws Exception {
+        //Jars without directory entries are invisible to the package lookup
+        for (var current = loader; nonNull(current); current = current.getParent()) {
+            if (current instanceof URLClassLoader urls) {
+                for (var url : urls.getURLs()) {
+                    parts.add(describe(url));
+                }
+            } else if (current == ClassLoader.getSystemClassLoader()) {
+                for (var entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+                    if (!entry.isEmpty()) {
+                        parts.add(describe(new File(entry).toURI().toURL()));
+                    }
+                }
+            }
+        }
+    }
+
+    protected static String describe(URL url) {
+        var location = url.toString();
+        try {
+            if ("jar".equals(url.getProtocol())) {
+                var idx = location.indexOf("!/");
+                location = location.substring(4, idx > 0 ? idx : location.length());
+            }
+            if (location.startsWith("file:")) {
+                var file = new File(new URL(location).toURI());
+                return file.getAbsolutePath() + ':' + file.length() + ':' + file.lastModified();
+            }
+        } catch (Exception e) {
+            //Fall back to the plain location
+        }
+        return location;
+    }
+
+    protected record Entry(String fingerprint, SoftReference<List<Discoverer.DiscoveredService>> services) {
+    }
+
+}
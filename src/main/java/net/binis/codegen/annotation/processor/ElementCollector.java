@@ -0,0 +1,90 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import net.binis.codegen.tools.Reflection;
+
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.*;
+import javax.lang.model.util.Elements;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ElementCollector {
+
+    protected static final Map<String, Optional<Class<?>>> classes = new ConcurrentHashMap<>();
+
+    protected final Elements elementUtils;
+    protected final Map<String, Set<Element>> annotated = new HashMap<>();
+
+    public ElementCollector(Elements elementUtils) {
+        this.elementUtils = elementUtils;
+    }
+
+    public static Class<?> loadClass(String name) {
+        return classes.computeIfAbsent(name, n -> Optional.ofNullable(Reflection.loadClass(n))).orElse(null);
+    }
+
+    public static void clearClasses() {
+        classes.clear();
+    }
+
+    public void collect(RoundEnvironment roundEnv) {
+        annotated.clear();
+        roundEnv.getRootElements().forEach(this::scan);
+    }
+
+    public boolean contains(String annotation) {
+        return annotated.containsKey(annotation.replace('$', '.'));
+    }
+
+    public Set<Element> getElementsAnnotatedWith(String annotation) {
+        return annotated.getOrDefault(annotation.replace('$', '.'), Set.of());
+    }
+
+    public Set<Element> getElementsAnnotatedWith(Class<?> annotation) {
+        return getElementsAnnotatedWith(annotation.getCanonicalName());
+    }
+
+    public Set<Element> getElementsAnnotatedWith(TypeElement annotation) {
+        return getElementsAnnotatedWith(annotation.getQualifiedName().toString());
+    }
+
+    protected void scan(Element element) {
+        var mirrors = element instanceof TypeElement ? elementUtils.getAllAnnotationMirrors(element) : element.getAnnotationMirrors();
+        for (var mirror : mirrors) {
+            if (mirror.getAnnotationType().asElement() instanceof TypeElement type) {
+                annotated.computeIfAbsent(type.getQualifiedName().toString(), k -> new LinkedHashSet<>()).add(element);
+            }
+        }
+
+        if (element instanceof TypeElement type) {
+            type.getTypeParameters().forEach(this::scan);
+        } else if (element instanceof ExecutableElement method) {
+            method.getTypeParameters().forEach(this::scan);
+            method.getParameters().forEach(this::scan);
+        }
+        if (!(element instanceof PackageElement)) {
+            element.getEnclosedElements().forEach(this::scan);
+        }
+    }
+
+}
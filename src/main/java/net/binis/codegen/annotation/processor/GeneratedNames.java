@@ -0,0 +1,87 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.*;
+
+import static java.util.Objects.nonNull;
+import static net.binis.codegen.tools.Tools.with;
+
+@Slf4j
+public class GeneratedNames {
+
+    protected final File file;
+    protected final Properties entries = new Properties();
+    protected final Map<String, String> prototypes = new HashMap<>();
+    protected boolean changed;
+
+    public GeneratedNames(File file) {
+        this.file = file;
+        if (nonNull(file) && file.exists()) {
+            try (var stream = new FileInputStream(file)) {
+                entries.load(stream);
+                entries.stringPropertyNames().forEach(prototype -> with(getNames(prototype), names -> names.forEach(name -> prototypes.put(name, prototype))));
+            } catch (Exception e) {
+                log.warn("Unable to read generated names {}", file);
+            }
+        }
+    }
+
+    public synchronized void add(String prototype, String... names) {
+        var list = Arrays.stream(names).filter(Objects::nonNull).toList();
+        var value = String.join(",", list);
+        if (!value.equals(entries.getProperty(prototype))) {
+            with(getNames(prototype), old -> old.forEach(prototypes::remove));
+            entries.setProperty(prototype, value);
+            list.forEach(name -> prototypes.put(name, prototype));
+            changed = true;
+        }
+    }
+
+    public synchronized List<String> getNames(String prototype) {
+        var value = entries.getProperty(prototype);
+        return nonNull(value) && !value.isEmpty() ? List.of(value.split(",")) : null;
+    }
+
+    public synchronized String getPrototype(String name) {
+        return prototypes.get(name);
+    }
+
+    public synchronized void save() {
+        if (changed && nonNull(file)) {
+            var dir = file.getParentFile();
+            if (dir.exists() || dir.mkdirs()) {
+                try (var stream = new FileOutputStream(file)) {
+                    entries.store(stream, null);
+                    changed = false;
+                } catch (Exception e) {
+                    log.warn("Unable to write generated names {}", file);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+@Slf4j
+public class GenerationCache {
+
+    public static final String AGGREGATE = "<aggregate>";
+    public static final String NO_AGGREGATE = "<none>";
+    protected static final String EXTENSION = ".cache";
+
+    protected final File dir;
+    protected final Map<String, List<CachedFile>> recorded = new HashMap<>();
+    protected final Set<String> restored = new HashSet<>();
+
+    public GenerationCache(File dir) {
+        this.dir = dir;
+    }
+
+    public static String hash(String... parts) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            for (var part : parts) {
+                if (nonNull(part)) {
+                    digest.update(part.getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public List<CachedFile> load(String owner, String key) {
+        var file = entryFile(owner);
+        if (file.exists()) {
+            try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (key.equals(in.readUTF())) {
+                    var count = in.readInt();
+                    var result = new ArrayList<CachedFile>(count);
+                    for (var i = 0; i < count; i++) {
+                        var name = in.readUTF();
+                        var path = in.readBoolean() ? in.readUTF() : null;
+                        var content = new byte[in.readInt()];
+                        in.readFully(content);
+                        result.add(new CachedFile(name, path, new String(content, StandardCharsets.UTF_8)));
+                    }
+                    return result;
+                }
+            } catch (Exception e) {
+                log.warn("Unable to read cache entry {}", file);
+            }
+        }
+        return null;
+    }
+
+    public boolean exists(String owner) {
+        return entryFile(owner).exists();
+    }
+
+    public void restored(String owner) {
+        restored.add(owner);
+    }
+
+    public boolean isRestored(String owner) {
+        return restored.contains(owner);
+    }
+
+    public void record(String owner, String name, String path, String content) {
+        //Restored entries are complete, anything recorded for them later would replace the cached sources
+        if (restored.contains(owner)) {
+            return;
+        }
+        recorded.computeIfAbsent(owner, k -> new ArrayList<>()).add(new CachedFile(name, path, content));
+    }
+
+    public void store(String owner, String key) {
+        if (restored.contains(owner)) {
+            return;
+        }
+        var files = recorded.remove(owner);
+        if (isNull(files)) {
+            files = List.of();
+        }
+        if (files.isEmpty() && !owner.startsWith(AGGREGATE)) {
+            remove(owner);
+            return;
+        }
+
+        var file = entryFile(owner);
+        if (dir.exists() || dir.mkdirs()) {
+            try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                out.writeUTF(key);
+                out.writeInt(files.size());
+                for (var cached : files) {
+                    out.writeUTF(cached.name());
+                    out.writeBoolean(nonNull(cached.path()));
+                    if (nonNull(cached.path())) {
+                        out.writeUTF(cached.path());
+                    }
+                    var content = cached.content().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(content.length);
+                    out.write(content);
+                }
+            } catch (Exception e) {
+                log.warn("Unable to write cache entry {}", file);
+                remove(owner);
+            }
+        }
+    }
+
+    public boolean isRecorded(String owner) {
+        return recorded.containsKey(owner);
+    }
+
+    public void remove(String owner) {
+        var file = entryFile(owner);
+        if (file.exists() && !file.delete()) {
+            log.warn("Unable to delete cache entry {}", file);
+        }
+    }
+
+    public void clearRecorded() {
+        recorded.clear();
+        restored.clear();
+    }
+
+    protected File entryFile(String owner) {
+        return new File(dir, hash(owner) + EXTENSION);
+    }
+
+    public record CachedFile(String name, String path, String content) {
+    }
+
+}
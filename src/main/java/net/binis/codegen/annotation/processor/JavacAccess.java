@@ -0,0 +1,143 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import lombok.extern.slf4j.Slf4j;
+import net.binis.codegen.tools.Reflection;
+
+import javax.tools.JavaFileManager;
+import javax.tools.StandardJavaFileManager;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+@Slf4j
+public class JavacAccess {
+
+    protected static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    protected static final MethodType LOCATION = MethodType.methodType(Iterable.class, Object.class, JavaFileManager.Location.class);
+
+    protected static final ClassValue<Map<String, Function<Object, Object>>> fields = new ClassValue<>() {
+        @Override
+        protected Map<String, Function<Object, Object>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    protected static final ClassValue<MethodHandle> locations = new ClassValue<>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            return findLocationHandle(type);
+        }
+    };
+
+    private JavacAccess() {
+        //Do nothing
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T getField(Object target, String name) {
+        if (isNull(target)) {
+            return null;
+        }
+        return (T) fields.get(target.getClass()).computeIfAbsent(name, n -> findAccessor(target.getClass(), n)).apply(target);
+    }
+
+    public static Object getSourceFile(Object element) {
+        return getField(element, "sourcefile");
+    }
+
+    public static boolean hasLocations(Object manager) {
+        return nonNull(manager) && (manager instanceof StandardJavaFileManager || nonNull(locations.get(manager.getClass())));
+    }
+
+    public static Object getLocation(Object manager, JavaFileManager.Location location) {
+        if (manager instanceof StandardJavaFileManager standard) {
+            return standard.getLocation(location);
+        }
+        var handle = isNull(manager) ? null : locations.get(manager.getClass());
+        if (nonNull(handle)) {
+            try {
+                return (Iterable<?>) handle.invokeExact(manager, location);
+            } catch (Throwable e) {
+                log.debug("Unable to get location {} ({})", location, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    protected static Function<Object, Object> findAccessor(Class<?> type, String name) {
+        var field = findField(type, name);
+        if (nonNull(field)) {
+            try {
+                var handle = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup())
+                        .unreflectGetter(field)
+                        .asType(GETTER);
+                return target -> {
+                    try {
+                        return handle.invokeExact(target);
+                    } catch (Throwable e) {
+                        return null;
+                    }
+                };
+            } catch (Exception e) {
+                //Package is not opened to us, use the slow path
+            }
+        }
+        return target -> {
+            var value = Reflection.getFieldValueUnsafe(target, name);
+            return isNull(value) ? Reflection.getFieldValue(target, name) : value;
+        };
+    }
+
+    protected static Field findField(Class<?> type, String name) {
+        for (var cls = type; nonNull(cls); cls = cls.getSuperclass()) {
+            try {
+                return cls.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                //Try the parent
+            }
+        }
+        return null;
+    }
+
+    protected static MethodHandle findLocationHandle(Class<?> type) {
+        var method = Reflection.findMethod("getLocation", type, JavaFileManager.Location.class);
+        if (isNull(method)) {
+            return null;
+        }
+        try {
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method).asType(LOCATION);
+        } catch (Exception e) {
+            log.debug("Unable to access getLocation of {} ({})", type.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Properties;
+
+@Slf4j
+public class OutputManifest {
+
+    protected final File file;
+    protected final Properties entries = new Properties();
+    protected boolean changed;
+    protected int skipped;
+
+    public OutputManifest(File file) {
+        this.file = file;
+        if (file.exists()) {
+            try (var stream = new FileInputStream(file)) {
+                entries.load(stream);
+            } catch (Exception e) {
+                log.warn("Unable to read output manifest {}", file);
+            }
+        }
+    }
+
+    public synchronized boolean isUnchanged(File target, String hash) {
+        if (target.exists() && entry(target, hash).equals(entries.getProperty(target.getAbsolutePath()))) {
+            skipped++;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void update(File target, String hash) {
+        entries.setProperty(target.getAbsolutePath(), entry(target, hash));
+        changed = true;
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public synchronized int getSkipped() {
+        return skipped;
+    }
+
+    public synchronized void save() {
+        if (changed) {
+            var dir = file.getParentFile();
+            if (dir.exists() || dir.mkdirs()) {
+                try (var stream = new FileOutputStream(file)) {
+                    entries.store(stream, null);
+                    changed = false;
+                } catch (Exception e) {
+                    log.warn("Unable to write output manifest {}", file);
+                }
+            }
+        }
+    }
+
+    protected static String entry(File target, String hash) {
+        return hash + ':' + target.length() + ':' + target.lastModified();
+    }
+
+}
@@ -0,0 +1,110 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import net.binis.codegen.exception.GenericCodeGenException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+public class OutputPipeline<T> implements AutoCloseable {
+
+    protected final int threads;
+    protected final Deque<Future<T>> pending = new ArrayDeque<>();
+    protected ExecutorService executor;
+
+    public OutputPipeline(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void submit(Callable<T> task) {
+        if (threads < 2) {
+            var future = new FutureTask<>(task);
+            future.run();
+            pending.add(future);
+        } else {
+            pending.add(getExecutor().submit(task));
+        }
+    }
+
+    public List<T> poll() {
+        var result = new ArrayList<T>();
+        while (!pending.isEmpty() && pending.peek().isDone()) {
+            result.add(get(pending.poll()));
+        }
+        return result;
+    }
+
+    public List<T> drain() {
+        var result = new ArrayList<T>();
+        while (!pending.isEmpty()) {
+            result.add(get(pending.poll()));
+        }
+        return result;
+    }
+
+    protected T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GenericCodeGenException("Output interrupted!", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException ex) {
+                throw ex;
+            }
+            throw new GenericCodeGenException("Unable to write output!", e.getCause());
+        }
+    }
+
+    protected ExecutorService getExecutor() {
+        if (isNull(executor)) {
+            var counter = new AtomicInteger();
+            //Bounded queue, when full the generating thread prints the file itself
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(threads * 4),
+                    r -> {
+                        var thread = new Thread(r, "codegen-writer-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        return executor;
+    }
+
+    @Override
+    public void close() {
+        if (nonNull(executor)) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        pending.clear();
+    }
+
+}
@@ -0,0 +1,74 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.management.ManagementFactory;
+
+public class ProcessingBudget {
+
+    protected static final double NEAR_LIMIT = 0.9;
+
+    protected final long time;
+    protected final long memory;
+    protected long elapsed;
+
+    public ProcessingBudget(long seconds, int memoryPercent) {
+        this.time = seconds > 0 ? seconds * 1_000_000_000L : 0;
+        this.memory = memoryPercent > 0 ? Runtime.getRuntime().maxMemory() / 100 * Math.min(memoryPercent, 100) : 0;
+    }
+
+    public boolean isEnabled() {
+        return time > 0 || memory > 0;
+    }
+
+    public boolean isTimeExceeded() {
+        return time > 0 && getElapsed() > time;
+    }
+
+    public boolean isMemoryNearLimit() {
+        return memory > 0 && getUsedMemory() > memory * NEAR_LIMIT;
+    }
+
+    public boolean isMemoryExceeded() {
+        return memory > 0 && getUsedMemory() > memory;
+    }
+
+    public void spent(long nanos) {
+        elapsed += nanos;
+    }
+
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    public long getTimeLimit() {
+        return time;
+    }
+
+    public long getMemoryLimit() {
+        return memory;
+    }
+
+    public long getUsedMemory() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+}
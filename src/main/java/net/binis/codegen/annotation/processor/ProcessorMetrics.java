@@ -0,0 +1,165 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.processing.Filer;
+import javax.tools.StandardLocation;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+public class ProcessorMetrics {
+
+    public static final String RESOURCE = "META-INF/binis/codegen-report.json";
+    protected static final Timer NONE = () -> {};
+
+    protected final boolean enabled;
+    protected final int slowest;
+    protected final long started = System.nanoTime();
+    protected final Map<String, LongAdder> phases = new ConcurrentHashMap<>();
+    protected final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    protected final PriorityQueue<Map.Entry<String, Long>> prototypes = new PriorityQueue<>(Map.Entry.comparingByValue());
+
+    public ProcessorMetrics(boolean enabled, int slowest) {
+        this.enabled = enabled;
+        this.slowest = Math.max(0, slowest);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Timer time(String phase) {
+        if (!enabled) {
+            return NONE;
+        }
+        var start = System.nanoTime();
+        return () -> add(phases, phase, System.nanoTime() - start);
+    }
+
+    public void count(String counter) {
+        count(counter, 1);
+    }
+
+    public void count(String counter, long value) {
+        if (enabled) {
+            add(counters, counter, value);
+        }
+    }
+
+    public void written(String content) {
+        if (enabled) {
+            add(counters, "files.written", 1);
+            add(counters, "bytes.written", content.getBytes(StandardCharsets.UTF_8).length);
+        }
+    }
+
+    public synchronized void prototype(String name, long nanos) {
+        if (enabled && slowest > 0) {
+            prototypes.add(Map.entry(name, nanos));
+            if (prototypes.size() > slowest) {
+                prototypes.poll();
+            }
+        }
+    }
+
+    public void write(Filer filer) {
+        if (enabled) {
+            try (var writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "", RESOURCE).openWriter()) {
+                writer.write(toJson());
+            } catch (Exception e) {
+                log.warn("Unable to write processor report ({})", e.getMessage());
+            }
+        }
+    }
+
+    public synchronized String toJson() {
+        var result = new StringBuilder("{\n");
+        result.append("  \"totalMillis\": ").append(millis(System.nanoTime() - started)).append(",\n");
+        result.append("  \"phases\": {");
+        appendValues(result, phases, true);
+        result.append("},\n  \"counters\": {");
+        appendValues(result, counters, false);
+        result.append("},\n  \"slowestPrototypes\": [");
+        var list = new ArrayList<>(prototypes);
+        list.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        for (var i = 0; i < list.size(); i++) {
+            result.append(i > 0 ? ",\n" : "\n")
+                    .append("    {\"name\": ").append(quote(list.get(i).getKey()))
+                    .append(", \"millis\": ").append(millis(list.get(i).getValue())).append('}');
+        }
+        result.append(list.isEmpty() ? "" : "\n  ").append("]\n}\n");
+        return result.toString();
+    }
+
+    protected static void add(Map<String, LongAdder> map, String key, long value) {
+        map.computeIfAbsent(key, k -> new LongAdder()).add(value);
+    }
+
+    protected static void appendValues(StringBuilder result, Map<String, LongAdder> values, boolean time) {
+        var sorted = new TreeMap<>(values);
+        var first = true;
+        for (var e : sorted.entrySet()) {
+            result.append(first ? "\n" : ",\n").append("    ").append(quote(e.getKey())).append(": ")
+                    .append(time ? millis(e.getValue().sum()) : Long.toString(e.getValue().sum()));
+            first = false;
+        }
+        result.append(first ? "" : "\n  ");
+    }
+
+    protected static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    protected static String quote(String value) {
+        var result = new StringBuilder("\"");
+        for (var c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> result.append("\\\"");
+                case '\\' -> result.append("\\\\");
+                case '\n' -> result.append("\\n");
+                case '\r' -> result.append("\\r");
+                case '\t' -> result.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        result.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        result.append(c);
+                    }
+                }
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    @FunctionalInterface
+    public interface Timer extends AutoCloseable {
+
+        @Override
+        void close();
+
+    }
+
+}
@@ -0,0 +1,69 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.*;
+
+public class PrototypeGraph {
+
+    protected final Map<String, String> parents = new LinkedHashMap<>();
+
+    public void add(String node) {
+        parents.putIfAbsent(node, node);
+    }
+
+    public void link(String node, String other) {
+        add(node);
+        add(other);
+        var root = find(node);
+        var otherRoot = find(other);
+        if (!root.equals(otherRoot)) {
+            //Keep the smallest name as root so the result does not depend on link order
+            if (root.compareTo(otherRoot) < 0) {
+                parents.put(otherRoot, root);
+            } else {
+                parents.put(root, otherRoot);
+            }
+        }
+    }
+
+    public List<List<String>> getComponents() {
+        //Components and their nodes keep the order the nodes were added in
+        var components = new LinkedHashMap<String, List<String>>();
+        new ArrayList<>(parents.keySet()).forEach(node ->
+                components.computeIfAbsent(find(node), k -> new ArrayList<>()).add(node));
+        return new ArrayList<>(components.values());
+    }
+
+    protected String find(String node) {
+        var root = node;
+        while (!root.equals(parents.get(root))) {
+            root = parents.get(root);
+        }
+        while (!node.equals(root)) {
+            var next = parents.get(node);
+            parents.put(node, root);
+            node = next;
+        }
+        return root;
+    }
+
+}
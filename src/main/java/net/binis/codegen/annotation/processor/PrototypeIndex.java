@@ -0,0 +1,251 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import lombok.extern.slf4j.Slf4j;
+import net.binis.codegen.generation.core.interfaces.PrototypeData;
+import net.binis.codegen.generation.core.interfaces.PrototypeDescription;
+
+import javax.annotation.processing.Filer;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+@Slf4j
+public class PrototypeIndex {
+
+    public static final String PACKAGE = "META-INF.binis";
+    public static final String NAME = "prototypes.idx";
+    public static final String RESOURCE = PACKAGE.replace('.', '/') + '/' + NAME;
+    public static final String MARKER = "<index>";
+    protected static final int VERSION = 1;
+
+    protected final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public static Entry describe(PrototypeDescription<ClassOrInterfaceDeclaration> p) {
+        var unit = p.getDeclarationUnit();
+        if (isNull(unit) || unit.getTypes().isEmpty()) {
+            return null;
+        }
+        var type = unit.getType(0);
+        var files = p.getFiles();
+        var properties = new ArrayList<String>();
+        describeProperties(p.getProperties(), properties);
+        var fields = new ArrayList<String>();
+        type.getMethods().stream()
+                .filter(m -> m.getParameters().isEmpty())
+                .forEach(m -> fields.add(m.getNameAsString() + ':' + m.getType().asString()));
+        return new Entry(getName(type),
+                files.size() > 1 ? getName(files.get(1)) : null,
+                !files.isEmpty() ? getName(files.get(0)) : null,
+                properties, fields, unit.toString());
+    }
+
+    public static PrototypeIndex load(JavaFileManager fileManager) {
+        var result = new PrototypeIndex();
+        if (nonNull(fileManager)) {
+            try {
+                for (var file : fileManager.list(StandardLocation.CLASS_PATH, PACKAGE, Set.of(JavaFileObject.Kind.OTHER), false)) {
+                    if (file.getName().endsWith(NAME)) {
+                        try (var in = file.openInputStream()) {
+                            result.read(in);
+                        } catch (Exception e) {
+                            log.warn("Unable to read prototype index {}", file.getName());
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Unable to list prototype indexes ({})", e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    public void add(Entry entry) {
+        if (nonNull(entry)) {
+            entries.put(entry.prototype(), entry);
+        }
+    }
+
+    public Entry find(String name) {
+        //Generated types are compiled in the upstream jar, only the prototype itself is served
+        return entries.get(name);
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public void write(Filer filer, Predicate<String> exists) {
+        //Partial compilations only describe the prototypes they generated, keep the rest of the previous index
+        var previous = new PrototypeIndex();
+        var found = false;
+        try (var in = filer.getResource(StandardLocation.CLASS_OUTPUT, "", RESOURCE).openInputStream()) {
+            previous.read(in);
+            found = true;
+        } catch (Exception e) {
+            //No previous index
+        }
+        var merged = new LinkedHashMap<String, Entry>();
+        previous.entries.forEach((name, entry) -> {
+            if (!entries.containsKey(name) && exists.test(name)) {
+                merged.put(name, entry);
+            }
+        });
+        merged.putAll(entries);
+        if (merged.isEmpty() && !found) {
+            return;
+        }
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+                filer.createResource(StandardLocation.CLASS_OUTPUT, "", RESOURCE).openOutputStream())))) {
+            out.writeInt(VERSION);
+            out.writeInt(merged.size());
+            for (var entry : merged.values()) {
+                entry.write(out);
+            }
+        } catch (Exception e) {
+            log.warn("Unable to write prototype index ({})", e.getMessage());
+        }
+    }
+
+    protected void read(InputStream stream) throws IOException {
+        var in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(stream)));
+        if (in.readInt() == VERSION) {
+            var count = in.readInt();
+            for (var i = 0; i < count; i++) {
+                add(Entry.read(in));
+            }
+        }
+    }
+
+    protected static void describeProperties(PrototypeData data, List<String> properties) {
+        if (nonNull(data)) {
+            properties.add("generateImplementation=" + data.isGenerateImplementation());
+            properties.add("generateInterface=" + data.isGenerateInterface());
+            if (nonNull(data.getMixInClass())) {
+                properties.add("mixInClass=" + data.getMixInClass().getName());
+            }
+            if (nonNull(data.getBasePath())) {
+                properties.add("basePath=" + data.getBasePath());
+            }
+            if (nonNull(data.getInterfacePath())) {
+                properties.add("interfacePath=" + data.getInterfacePath());
+            }
+            if (nonNull(data.getImplementationPath())) {
+                properties.add("implementationPath=" + data.getImplementationPath());
+            }
+        }
+    }
+
+    protected static String getName(CompilationUnit unit) {
+        return unit.getTypes().isEmpty() ? null : getName(unit.getType(0));
+    }
+
+    protected static String getName(TypeDeclaration<?> type) {
+        return type.getFullyQualifiedName().orElseGet(type::getNameAsString);
+    }
+
+    public record Entry(String prototype, String interfaceName, String implementationName, List<String> properties, List<String> fields, String source) {
+
+        public static Entry decode(String content) {
+            try (var in = new DataInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(content)))) {
+                return read(in);
+            } catch (Exception e) {
+                log.warn("Unable to decode prototype index entry");
+                return null;
+            }
+        }
+
+        public String encode() {
+            var bytes = new ByteArrayOutputStream();
+            try (var out = new DataOutputStream(bytes)) {
+                write(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return Base64.getEncoder().encodeToString(bytes.toByteArray());
+        }
+
+        protected static Entry read(DataInputStream in) throws IOException {
+            var prototype = in.readUTF();
+            var interfaceName = readNullable(in);
+            var implementationName = readNullable(in);
+            var properties = readList(in);
+            var fields = readList(in);
+            var source = new byte[in.readInt()];
+            in.readFully(source);
+            return new Entry(prototype, interfaceName, implementationName, properties, fields, new String(source, StandardCharsets.UTF_8));
+        }
+
+        protected void write(DataOutputStream out) throws IOException {
+            out.writeUTF(prototype);
+            writeNullable(out, interfaceName);
+            writeNullable(out, implementationName);
+            writeList(out, properties);
+            writeList(out, fields);
+            var bytes = source.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        protected static String readNullable(DataInputStream in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+
+        protected static void writeNullable(DataOutputStream out, String value) throws IOException {
+            out.writeBoolean(nonNull(value));
+            if (nonNull(value)) {
+                out.writeUTF(value);
+            }
+        }
+
+        protected static List<String> readList(DataInputStream in) throws IOException {
+            var count = in.readInt();
+            var result = new ArrayList<String>(count);
+            for (var i = 0; i < count; i++) {
+                result.add(in.readUTF());
+            }
+            return result;
+        }
+
+        protected static void writeList(DataOutputStream out, List<String> values) throws IOException {
+            out.writeInt(values.size());
+            for (var value : values) {
+                out.writeUTF(value);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.TypeElement;
+import javax.tools.FileObject;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.isNull;
+
+@Slf4j
+public class SourceIndex {
+
+    protected final Map<String, String> contents = new HashMap<>();
+    protected final Map<String, TypeElement> types = new HashMap<>();
+    protected final Set<String> missing = new HashSet<>();
+
+    public void index(RoundEnvironment roundEnv) {
+        types.clear();
+        missing.clear();
+        roundEnv.getRootElements().forEach(e -> {
+            if (e instanceof TypeElement type) {
+                types.put(type.getQualifiedName().toString(), type);
+            }
+        });
+    }
+
+    public TypeElement getType(String className) {
+        return types.get(className);
+    }
+
+    public boolean isMissing(String className) {
+        return missing.contains(className);
+    }
+
+    public void markMissing(String className) {
+        missing.add(className);
+    }
+
+    public String read(FileObject file) {
+        try {
+            return tryRead(file);
+        } catch (Exception e) {
+            log.error("Unable to read {}", file.getName());
+            return null;
+        }
+    }
+
+    public String tryRead(FileObject file) throws IOException {
+        var key = key(file.toUri());
+        var result = contents.get(key);
+        if (isNull(result)) {
+            result = file.getCharContent(true).toString();
+            contents.put(key, result);
+        }
+        return result;
+    }
+
+    public String read(File file) {
+        return contents.computeIfAbsent(file.getAbsolutePath(), k -> {
+            try {
+                return Files.readString(file.toPath(), Charset.defaultCharset());
+            } catch (Exception e) {
+                log.error("Unable to read {}", file);
+                return null;
+            }
+        });
+    }
+
+    public void release(Collection<String> uris) {
+        uris.forEach(uri -> {
+            try {
+                contents.remove(key(URI.create(uri)));
+            } catch (Exception e) {
+                //Not a valid uri, nothing cached for it
+            }
+        });
+    }
+
+    public void clearContents() {
+        contents.clear();
+    }
+
+    public void clear() {
+        contents.clear();
+        types.clear();
+        missing.clear();
+    }
+
+    protected static String key(URI uri) {
+        if ("file".equals(uri.getScheme())) {
+            try {
+                return Path.of(uri).toAbsolutePath().toString();
+            } catch (Exception e) {
+                //Fall back to the uri itself
+            }
+        }
+        return uri.toString();
+    }
+
+}
@@ -0,0 +1,120 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.AnnotationDeclaration;
+import com.github.javaparser.ast.comments.Comment;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Slf4j
+public class TemplateRegistry {
+
+    protected static final int VERSION = 1;
+
+    protected final File file;
+    protected final Map<String, Entry> entries = new HashMap<>();
+    protected boolean changed;
+
+    public TemplateRegistry(File file) {
+        this.file = file;
+        if (file.exists()) {
+            try (var in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+                if (in.readInt() == VERSION) {
+                    var count = in.readInt();
+                    for (var i = 0; i < count; i++) {
+                        var name = in.readUTF();
+                        var path = in.readUTF();
+                        var length = in.readLong();
+                        var modified = in.readLong();
+                        var hash = in.readUTF();
+                        var compact = new byte[in.readInt()];
+                        in.readFully(compact);
+                        entries.put(name, new Entry(path, length, modified, hash, new String(compact, StandardCharsets.UTF_8)));
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Unable to read template registry {}", file);
+                entries.clear();
+            }
+        }
+    }
+
+    public static String compact(CompilationUnit unit, AnnotationDeclaration declaration) {
+        var result = new CompilationUnit();
+        unit.getPackageDeclaration().ifPresent(p -> result.setPackageDeclaration(p.clone()));
+        unit.getImports().forEach(i -> result.addImport(i.clone()));
+        result.addType(declaration.clone());
+        result.getAllContainedComments().forEach(Comment::remove);
+        return result.toString();
+    }
+
+    public Entry get(String name) {
+        return entries.get(name);
+    }
+
+    public boolean isCurrent(Entry entry) {
+        var source = new File(entry.path());
+        return source.length() == entry.length() && source.lastModified() == entry.modified();
+    }
+
+    public void put(String name, File source, String hash, String compact) {
+        entries.put(name, new Entry(source.getAbsolutePath(), source.length(), source.lastModified(), hash, compact));
+        changed = true;
+    }
+
+    public void save() {
+        if (changed) {
+            var dir = file.getParentFile();
+            if (dir.exists() || dir.mkdirs()) {
+                try (var out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+                    out.writeInt(VERSION);
+                    out.writeInt(entries.size());
+                    for (var e : entries.entrySet()) {
+                        var entry = e.getValue();
+                        out.writeUTF(e.getKey());
+                        out.writeUTF(entry.path());
+                        out.writeLong(entry.length());
+                        out.writeLong(entry.modified());
+                        out.writeUTF(entry.hash());
+                        var compact = entry.compact().getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(compact.length);
+                        out.write(compact);
+                    }
+                    changed = false;
+                } catch (Exception e) {
+                    log.warn("Unable to write template registry {}", file);
+                }
+            }
+        }
+    }
+
+    public record Entry(String path, long length, long modified, String hash, String compact) {
+    }
+
+}
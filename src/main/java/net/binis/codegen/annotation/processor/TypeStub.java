@@ -0,0 +1,195 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.nonNull;
+
+public class TypeStub {
+
+    protected static final Set<Modifier> SKIPPED = Set.of(Modifier.SEALED, Modifier.NON_SEALED, Modifier.SYNCHRONIZED, Modifier.STRICTFP);
+
+    protected final Elements elementUtils;
+    protected final StringBuilder result = new StringBuilder();
+
+    protected TypeStub(Elements elementUtils) {
+        this.elementUtils = elementUtils;
+    }
+
+    public static String of(TypeElement type, Elements elementUtils) {
+        //Nested types are described by the stub of their source file
+        while (type.getEnclosingElement() instanceof TypeElement parent) {
+            type = parent;
+        }
+        var stub = new TypeStub(elementUtils);
+        var pkg = elementUtils.getPackageOf(type);
+        if (!pkg.isUnnamed()) {
+            stub.result.append("package ").append(pkg.getQualifiedName()).append(";\n\n");
+        }
+        stub.type(type, "");
+        return stub.result.toString();
+    }
+
+    protected void type(TypeElement type, String indent) {
+        annotations(type, indent, "\n");
+        result.append(indent).append(modifiers(type));
+        switch (type.getKind()) {
+            case INTERFACE -> result.append("interface ");
+            case ANNOTATION_TYPE -> result.append("@interface ");
+            case ENUM -> result.append("enum ");
+            case RECORD -> result.append("record ");
+            default -> result.append("class ");
+        }
+        result.append(type.getSimpleName()).append(typeParameters(type.getTypeParameters()));
+        if (type.getKind() == ElementKind.RECORD) {
+            result.append(type.getRecordComponents().stream()
+                    .map(c -> c.asType() + " " + c.getSimpleName())
+                    .collect(Collectors.joining(", ", "(", ")")));
+        }
+        if (type.getKind() == ElementKind.CLASS && type.getSuperclass().getKind() == TypeKind.DECLARED && !"java.lang.Object".equals(type.getSuperclass().toString())) {
+            result.append(" extends ").append(type.getSuperclass());
+        }
+        if (!type.getInterfaces().isEmpty() && type.getKind() != ElementKind.ANNOTATION_TYPE) {
+            result.append(type.getKind() == ElementKind.INTERFACE ? " extends " : " implements ")
+                    .append(type.getInterfaces().stream().map(TypeMirror::toString).collect(Collectors.joining(", ")));
+        }
+        result.append(" {\n");
+
+        var inner = indent + "    ";
+        if (type.getKind() == ElementKind.ENUM) {
+            result.append(inner).append(type.getEnclosedElements().stream()
+                    .filter(e -> e.getKind() == ElementKind.ENUM_CONSTANT)
+                    .map(e -> e.getSimpleName().toString())
+                    .collect(Collectors.joining(", "))).append(";\n");
+        }
+        for (var e : type.getEnclosedElements()) {
+            if (elementUtils.getOrigin(e) != Elements.Origin.EXPLICIT || isEnumMethod(type, e)) {
+                continue;
+            }
+            switch (e.getKind()) {
+                case FIELD -> {
+                    //Instance fields of records are declared by their components
+                    if (type.getKind() != ElementKind.RECORD || e.getModifiers().contains(Modifier.STATIC)) {
+                        field((VariableElement) e, inner);
+                    }
+                }
+                case METHOD, CONSTRUCTOR -> method((ExecutableElement) e, type, inner);
+                case CLASS, INTERFACE, ENUM, RECORD, ANNOTATION_TYPE -> type((TypeElement) e, inner);
+                default -> {
+                    //Enum constants are already listed, initializers are not needed for signatures
+                }
+            }
+        }
+        result.append(indent).append("}\n");
+    }
+
+    protected static boolean isEnumMethod(TypeElement type, Element element) {
+        if (type.getKind() == ElementKind.ENUM && element instanceof ExecutableElement method && method.getModifiers().contains(Modifier.STATIC)) {
+            var name = method.getSimpleName().toString();
+            return ("values".equals(name) && method.getParameters().isEmpty()) || ("valueOf".equals(name) && method.getParameters().size() == 1);
+        }
+        return false;
+    }
+
+    protected void field(VariableElement field, String indent) {
+        annotations(field, indent, "\n");
+        result.append(indent).append(modifiers(field)).append(field.asType()).append(' ').append(field.getSimpleName());
+        if (nonNull(field.getConstantValue())) {
+            result.append(" = ").append(elementUtils.getConstantExpression(field.getConstantValue()));
+        }
+        result.append(";\n");
+    }
+
+    protected void method(ExecutableElement method, TypeElement type, String indent) {
+        annotations(method, indent, "\n");
+        result.append(indent).append(modifiers(method));
+        if (!method.getTypeParameters().isEmpty()) {
+            result.append(typeParameters(method.getTypeParameters())).append(' ');
+        }
+        if (method.getKind() == ElementKind.CONSTRUCTOR) {
+            result.append(type.getSimpleName());
+        } else {
+            result.append(method.getReturnType()).append(' ').append(method.getSimpleName());
+        }
+        var parameters = method.getParameters();
+        result.append('(');
+        for (var i = 0; i < parameters.size(); i++) {
+            var param = parameters.get(i);
+            if (i > 0) {
+                result.append(", ");
+            }
+            annotations(param, "", " ");
+            var paramType = param.asType().toString();
+            if (method.isVarArgs() && i == parameters.size() - 1 && paramType.endsWith("[]")) {
+                paramType = paramType.substring(0, paramType.length() - 2) + "...";
+            }
+            result.append(paramType).append(' ').append(param.getSimpleName());
+        }
+        result.append(')');
+        if (!method.getThrownTypes().isEmpty()) {
+            result.append(" throws ").append(method.getThrownTypes().stream().map(TypeMirror::toString).collect(Collectors.joining(", ")));
+        }
+        if (nonNull(method.getDefaultValue())) {
+            result.append(" default ").append(method.getDefaultValue());
+        }
+        var bodyless = method.getModifiers().contains(Modifier.ABSTRACT) || method.getModifiers().contains(Modifier.NATIVE) ||
+                (type.getKind().isInterface() && !method.getModifiers().contains(Modifier.DEFAULT) && !method.getModifiers().contains(Modifier.STATIC) && !method.getModifiers().contains(Modifier.PRIVATE));
+        result.append(bodyless ? ";\n" : " {}\n");
+    }
+
+    protected void annotations(Element element, String indent, String separator) {
+        element.getAnnotationMirrors().forEach(a -> result.append(indent).append(a).append(separator));
+    }
+
+    protected static String modifiers(Element element) {
+        var result = new StringBuilder();
+        var kind = element.getKind();
+        element.getModifiers().stream()
+                .filter(m -> !SKIPPED.contains(m))
+                .filter(m -> m != Modifier.FINAL || (kind != ElementKind.ENUM && kind != ElementKind.RECORD))
+                .filter(m -> m != Modifier.ABSTRACT || !kind.isInterface())
+                .forEach(m -> result.append(m).append(' '));
+        return result.toString();
+    }
+
+    protected static String typeParameters(List<? extends TypeParameterElement> parameters) {
+        if (parameters.isEmpty()) {
+            return "";
+        }
+        return parameters.stream()
+                .map(p -> {
+                    var bounds = p.getBounds().stream()
+                            .map(TypeMirror::toString)
+                            .filter(b -> !"java.lang.Object".equals(b))
+                            .collect(Collectors.joining(" & "));
+                    return bounds.isEmpty() ? p.getSimpleName().toString() : p.getSimpleName() + " extends " + bounds;
+                })
+                .collect(Collectors.joining(", ", "<", ">"));
+    }
+
+}
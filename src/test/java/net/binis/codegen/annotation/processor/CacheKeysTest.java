@@ -0,0 +1,141 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Objects.isNull;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheKeysTest {
+
+    protected static final String ORDER = "test.OrderPrototype";
+    protected static final String CUSTOMER = "test.CustomerPrototype";
+    protected static final String OTHER = "test.OtherPrototype";
+
+    @Test
+    void dependencyChanged() {
+        var sources = new HashMap<String, String>();
+        sources.put(ORDER, "package test; public interface OrderPrototype { CustomerPrototype customer(); }");
+        sources.put(CUSTOMER, "package test; public interface CustomerPrototype { String name(); }");
+        sources.put(OTHER, "package test; public interface OtherPrototype { String name(); }");
+        var key = calcKey(sources, ORDER);
+
+        sources.put(OTHER, "package test; public interface OtherPrototype { String title(); }");
+        assertEquals(key, calcKey(sources, ORDER));
+
+        sources.put(CUSTOMER, "package test; public interface CustomerPrototype { String title(); }");
+        assertNotEquals(key, calcKey(sources, ORDER));
+    }
+
+    @Test
+    void generatedDependencyChanged() {
+        var sources = new HashMap<String, String>();
+        sources.put(ORDER, "package test; public interface OrderPrototype { Customer customer(); CustomerImpl impl(); }");
+        sources.put(CUSTOMER, "package test; public interface CustomerPrototype { String name(); }");
+        sources.put(OTHER, "package test; public interface OtherPrototype { String name(); }");
+        var key = calcKey(sources, ORDER);
+
+        sources.put(OTHER, "package test; public interface OtherPrototype { String title(); }");
+        assertEquals(key, calcKey(sources, ORDER));
+
+        sources.put(CUSTOMER, "package test; public interface CustomerPrototype { String title(); }");
+        assertNotEquals(key, calcKey(sources, ORDER));
+    }
+
+    @Test
+    void renamedDependencyChanged() {
+        var names = new GeneratedNames(null);
+        names.add(CUSTOMER, "test.Client", "test.ClientEntity");
+        var sources = new HashMap<String, String>();
+        sources.put(ORDER, "package test; public interface OrderPrototype { Client customer(); ClientEntity entity(); }");
+        sources.put(CUSTOMER, "package test; public interface CustomerPrototype { String name(); }");
+        var key = calcKey(sources, ORDER, names);
+
+        sources.put(CUSTOMER, "package test; public interface CustomerPrototype { String title(); }");
+        assertNotEquals(key, calcKey(sources, ORDER, names));
+    }
+
+    protected static String calcKey(Map<String, String> sources, String type) {
+        return calcKey(sources, type, new GeneratedNames(null));
+    }
+
+    protected static String calcKey(Map<String, String> sources, String type, GeneratedNames names) {
+        var result = new AtomicReference<String>();
+        var units = sources.entrySet().stream().map(e -> (JavaFileObject) new Source(e.getKey(), e.getValue())).toList();
+        var task = ToolProvider.getSystemJavaCompiler().getTask(null, null, d -> {}, List.of("-proc:only"), null, units);
+        task.setProcessors(List.of(new AbstractProcessor() {
+            @Override
+            public Set<String> getSupportedAnnotationTypes() {
+                return Set.of("*");
+            }
+
+            @Override
+            public SourceVersion getSupportedSourceVersion() {
+                return SourceVersion.latestSupported();
+            }
+
+            @Override
+            public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+                if (isNull(result.get())) {
+                    var elements = processingEnv.getElementUtils();
+                    var keys = new CacheKeys(elements, sources::get, names);
+                    roundEnv.getRootElements().stream()
+                            .filter(TypeElement.class::isInstance)
+                            .forEach(e -> keys.register((TypeElement) e));
+                    result.set(keys.calcKey("inputs", sources.get(type), List.of(elements.getTypeElement(type))));
+                }
+                return false;
+            }
+        }));
+        task.call();
+        assertNotNull(result.get());
+        return result.get();
+    }
+
+    protected static class Source extends SimpleJavaFileObject {
+
+        protected final String content;
+
+        protected Source(String name, String content) {
+            super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+
+    }
+
+}
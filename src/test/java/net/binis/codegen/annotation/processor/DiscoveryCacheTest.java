@@ -0,0 +1,75 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class DiscoveryCacheTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void jarChanged() throws Exception {
+        var jar = new File(dir, "templates.jar");
+        writeJar(jar, "binis/annotations", "test.Template");
+        try (var loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null)) {
+            var fingerprint = DiscoveryCache.fingerprint(loader);
+            assertEquals(fingerprint, DiscoveryCache.fingerprint(loader));
+
+            writeJar(jar, "binis/annotations", "test.Template\ntest.OtherTemplate");
+            assertNotEquals(fingerprint, DiscoveryCache.fingerprint(loader));
+        }
+    }
+
+    @Test
+    void extensionJarChanged() throws Exception {
+        var jar = new File(dir, "enricher.jar");
+        writeJar(jar, "net/binis/codegen/enrich/Enricher.class", "v1");
+        try (var loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null)) {
+            var fingerprint = DiscoveryCache.fingerprint(loader);
+
+            writeJar(jar, "net/binis/codegen/enrich/Enricher.class", "version 2");
+            assertNotEquals(fingerprint, DiscoveryCache.fingerprint(loader));
+        }
+    }
+
+    protected static void writeJar(File jar, String entry, String content) throws Exception {
+        try (var out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry(entry));
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationCacheTest {
+
+    protected static final String ORDER = "test/OrderPrototype.java";
+    protected static final String CUSTOMER = "test/CustomerPrototype.java";
+
+    @TempDir
+    File dir;
+
+    @Test
+    void restoredOwnerKeepsSources() {
+        //First build generates everything
+        var cache = new GenerationCache(dir);
+        cache.record(ORDER, "test.Order", null, "interface Order {}");
+        cache.record(ORDER, "test.OrderPrototype", PrototypeIndex.MARKER, "order");
+        cache.record(CUSTOMER, "test.Customer", null, "interface Customer {}");
+        cache.store(ORDER, "order-1");
+        cache.store(CUSTOMER, "customer-1");
+        cache.clearRecorded();
+
+        //Second build restores Order and regenerates Customer, which parses Order again
+        cache = new GenerationCache(dir);
+        assertNotNull(cache.load(ORDER, "order-1"));
+        assertNull(cache.load(CUSTOMER, "customer-2"));
+        cache.restored(ORDER);
+        cache.record(ORDER, "test.OrderPrototype", PrototypeIndex.MARKER, "order");
+        cache.record(CUSTOMER, "test.Customer", null, "interface Customer { String name(); }");
+        assertFalse(cache.isRecorded(ORDER));
+        cache.store(ORDER, "order-1");
+        cache.store(CUSTOMER, "customer-2");
+        cache.clearRecorded();
+
+        //Third build restores both
+        cache = new GenerationCache(dir);
+        var order = cache.load(ORDER, "order-1");
+        assertEquals(List.of("test.Order", "test.OrderPrototype"), order.stream().map(GenerationCache.CachedFile::name).toList());
+        assertEquals("interface Order {}", order.get(0).content());
+        assertEquals("interface Customer { String name(); }", cache.load(CUSTOMER, "customer-2").get(0).content());
+    }
+
+}
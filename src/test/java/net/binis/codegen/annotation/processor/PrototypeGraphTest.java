@@ -0,0 +1,42 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrototypeGraphTest {
+
+    @Test
+    void componentsKeepAddOrder() {
+        var graph = new PrototypeGraph();
+        List.of("b", "a", "d", "c", "e").forEach(graph::add);
+        graph.link("d", "b");
+        graph.link("c", "e");
+        graph.link("e", "<unresolved>");
+
+        assertEquals(List.of(List.of("b", "d"), List.of("a"), List.of("c", "e", "<unresolved>")), graph.getComponents());
+    }
+
+}
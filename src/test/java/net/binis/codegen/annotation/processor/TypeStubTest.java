@@ -0,0 +1,139 @@
+package net.binis.codegen.annotation.processor;
+
+/*-
+ * #%L
+ * code-generator-annotation
+ * %%
+ * Copyright (C) 2021 - 2026 Binis Belev
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.*;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Objects.isNull;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypeStubTest {
+
+    @Test
+    void varargs() {
+        var unit = stub("test.Util", "package test; public class Util { public static String join(String separator, String... parts) { return separator; } public static <T extends Comparable<T>> T max(java.util.List<? extends T> values) { return null; } }");
+        var join = unit.getClassByName("Util").orElseThrow().getMethodsByName("join").get(0);
+        assertTrue(join.getParameter(1).isVarArgs());
+        assertEquals("java.lang.String", join.getParameter(1).getType().asString());
+        var max = unit.getClassByName("Util").orElseThrow().getMethodsByName("max").get(0);
+        assertEquals(1, max.getTypeParameters().size());
+        assertEquals("T", max.getType().asString());
+    }
+
+    @Test
+    void enumWithConstructor() {
+        var unit = stub("test.Color", "package test; public enum Color { RED(1), GREEN(2); private final int value; Color(int value) { this.value = value; } public int value() { return value; } }");
+        var type = unit.getEnumByName("Color").orElseThrow();
+        assertEquals(List.of("RED", "GREEN"), type.getEntries().stream().map(EnumConstantDeclaration::getNameAsString).toList());
+        assertEquals(1, type.getConstructors().size());
+        assertTrue(type.getFieldByName("value").isPresent());
+        assertEquals(1, type.getMethodsByName("value").size());
+        assertTrue(type.getMethodsByName("values").isEmpty());
+    }
+
+    @Test
+    void recordStaticMembers() {
+        var unit = stub("test.Point", "package test; public record Point(int x, int y) { public static final Point ORIGIN = new Point(0, 0); static int created; public static Point of(int x) { return new Point(x, x); } }");
+        var type = unit.getRecordByName("Point").orElseThrow();
+        assertEquals(List.of("x", "y"), type.getParameters().stream().map(Parameter::getNameAsString).toList());
+        assertEquals(List.of("ORIGIN", "created"), type.getFields().stream().map(f -> f.getVariable(0).getNameAsString()).toList());
+        assertTrue(type.getFieldByName("ORIGIN").orElseThrow().isStatic());
+        assertEquals(1, type.getMethodsByName("of").size());
+    }
+
+    @Test
+    void annotationDefaults() {
+        var unit = stub("test.Config", "package test; public @interface Config { String name() default \"config\"; int[] sizes() default {1, 2}; Class<?> type() default Object.class; java.lang.annotation.RetentionPolicy policy() default java.lang.annotation.RetentionPolicy.RUNTIME; String value(); }");
+        var type = unit.getAnnotationDeclarationByName("Config").orElseThrow();
+        var defaults = type.getMembers().stream()
+                .map(AnnotationMemberDeclaration.class::cast)
+                .filter(m -> m.getDefaultValue().isPresent())
+                .map(AnnotationMemberDeclaration::getNameAsString)
+                .toList();
+        assertEquals(List.of("name", "sizes", "type", "policy"), defaults);
+        assertEquals("\"config\"", member(type, "name").getDefaultValue().orElseThrow().toString());
+        assertTrue(member(type, "value").getDefaultValue().isEmpty());
+    }
+
+    @Test
+    void nestedGenerics() {
+        var unit = stub("test.Repository", "package test; import java.util.*; public class Repository<K extends Comparable<K>, V> { protected Map<K, List<Map.Entry<K, V>>> index; public class Page<T> { public List<? super T> items; } }");
+        var type = unit.getClassByName("Repository").orElseThrow();
+        assertEquals("K extends java.lang.Comparable<K>", type.getTypeParameter(0).toString());
+        assertEquals("java.util.Map<K,java.util.List<java.util.Map.Entry<K,V>>>", type.getFieldByName("index").orElseThrow().getElementType().asString());
+        var page = (ClassOrInterfaceDeclaration) type.getMembers().stream().filter(ClassOrInterfaceDeclaration.class::isInstance).findFirst().orElseThrow();
+        assertEquals("java.util.List<? super T>", page.getFieldByName("items").orElseThrow().getElementType().asString());
+    }
+
+    protected static AnnotationMemberDeclaration member(AnnotationDeclaration type, String name) {
+        return type.getMembers().stream()
+                .map(AnnotationMemberDeclaration.class::cast)
+                .filter(m -> m.getNameAsString().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    protected static CompilationUnit stub(String name, String source) {
+        var result = new AtomicReference<String>();
+        var units = List.<JavaFileObject>of(new CacheKeysTest.Source(name, source));
+        var task = ToolProvider.getSystemJavaCompiler().getTask(null, null, d -> {}, List.of("-proc:only"), null, units);
+        task.setProcessors(List.of(new AbstractProcessor() {
+            @Override
+            public Set<String> getSupportedAnnotationTypes() {
+                return Set.of("*");
+            }
+
+            @Override
+            public SourceVersion getSupportedSourceVersion() {
+                return SourceVersion.latestSupported();
+            }
+
+            @Override
+            public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+                if (isNull(result.get())) {
+                    var elements = processingEnv.getElementUtils();
+                    result.set(TypeStub.of(elements.getTypeElement(name), elements));
+                }
+                return false;
+            }
+        }));
+        task.call();
+        assertNotNull(result.get());
+        var parsed = new JavaParser(new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17)).parse(result.get());
+        assertTrue(parsed.isSuccessful(), () -> result.get() + parsed.getProblems());
+        return parsed.getResult().orElseThrow();
+    }
+
+}